@@ -20,8 +20,8 @@ import network.balanced.score.core.dex.db.NodeDB;
 import network.balanced.score.lib.interfaces.Dex;
 import network.balanced.score.lib.structs.PrepDelegations;
 import network.balanced.score.lib.structs.RewardsDataEntry;
+import network.balanced.score.lib.utils.EnumerableSetDB;
 import score.Address;
-import score.BranchDB;
 import score.Context;
 import score.DictDB;
 import score.annotation.EventLog;
@@ -363,7 +363,12 @@ public abstract class AbstractDex implements Dex {
 
     @External(readonly = true)
     public BigInteger getPoolTotal(BigInteger _id, Address _token) {
-        return poolTotal.at(_id.intValue()).getOrDefault(_token, BigInteger.ZERO);
+        PoolRecord pool = PoolRecord.load(_id.intValue());
+        if (pool == null) {
+            return BigInteger.ZERO;
+        }
+
+        return pool.getTotal(_token);
     }
 
     @External(readonly = true)
@@ -384,7 +389,8 @@ public abstract class AbstractDex implements Dex {
             return ((EXA.multiply(EXA)).divide(getSicxRate()));
         }
 
-        return priceOfAInB(_id.intValue(), poolQuote, poolBase);
+        PoolRecord pool = PoolRecord.load(_id.intValue());
+        return pool.getBaseTotal().multiply(EXA).divide(pool.getQuoteTotal());
     }
 
     @External(readonly = true)
@@ -395,18 +401,8 @@ public abstract class AbstractDex implements Dex {
             return getSicxRate();
         }
 
-        return priceOfAInB(_id.intValue(), poolBase, poolQuote);
-    }
-
-    private BigInteger priceOfAInB(Integer id, DictDB<Integer, Address> tokenA, DictDB<Integer, Address> tokenB) {
-        Address ATokenAddress = tokenA.get(id);
-        Address BTokenAddress = tokenB.get(id);
-
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-        BigInteger ATokenTotal = totalTokensInPool.get(ATokenAddress);
-        BigInteger BTokenTotal = totalTokensInPool.get(BTokenAddress);
-
-        return BTokenTotal.multiply(EXA).divide(ATokenTotal);
+        PoolRecord pool = PoolRecord.load(_id.intValue());
+        return pool.getQuoteTotal().multiply(EXA).divide(pool.getBaseTotal());
     }
 
     @External(readonly = true)
@@ -427,15 +423,16 @@ public abstract class AbstractDex implements Dex {
             return (icxTotal.multiply(getSicxBnusdPrice())).divide(getSicxRate());
         }
 
-        Address poolQuoteToken = poolQuote.get(_id);
+        PoolRecord pool = PoolRecord.load(_id);
+        Address poolQuoteToken = pool.getQuote();
         Address sicxAddress = sicx.get();
         Address bnusdAddress = bnUSD.get();
 
         if (poolQuoteToken.equals(sicxAddress)) {
-            BigInteger sicxTotal = poolTotal.at(_id).get(sicxAddress).multiply(BigInteger.TWO);
+            BigInteger sicxTotal = pool.getQuoteTotal().multiply(BigInteger.TWO);
             return getSicxBnusdPrice().multiply(sicxTotal).divide(EXA);
         } else if (poolQuoteToken.equals(bnusdAddress)) {
-            return poolTotal.at(_id).get(bnusdAddress).multiply(BigInteger.TWO);
+            return pool.getQuoteTotal().multiply(BigInteger.TWO);
         }
         return BigInteger.ZERO;
     }
@@ -475,13 +472,13 @@ public abstract class AbstractDex implements Dex {
             poolStats.put("quote_decimals", 18);
             poolStats.put("min_quote", getRewardableAmount(null));
         } else {
-            Address baseToken = poolBase.get(_id.intValue());
-            Address quoteToken = poolQuote.get(_id.intValue());
+            PoolRecord pool = PoolRecord.load(_id.intValue());
+            Address baseToken = pool.getBase();
+            Address quoteToken = pool.getQuote();
             String name = marketsToNames.get(_id.intValue());
-            DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(_id.intValue());
 
-            poolStats.put("base", totalTokensInPool.get(baseToken));
-            poolStats.put("quote", totalTokensInPool.get(quoteToken));
+            poolStats.put("base", pool.getBaseTotal());
+            poolStats.put("quote", pool.getQuoteTotal());
             poolStats.put("base_token", baseToken);
             poolStats.put("quote_token", quoteToken);
             poolStats.put("total_supply", poolLpTotal.get(_id.intValue()));
@@ -544,6 +541,11 @@ public abstract class AbstractDex implements Dex {
     public void permit(BigInteger _id, boolean _permission) {
         only(admin);
         active.set(_id.intValue(), _permission);
+        PoolRecord pool = PoolRecord.load(_id.intValue());
+        if (pool != null) {
+            pool.setActive(_permission);
+            pool.save();
+        }
     }
 
     @External
@@ -651,56 +653,251 @@ public abstract class AbstractDex implements Dex {
             minimumReceive = BigInteger.ZERO;
         }
 
+        BigInteger sendAmount = swapInPool(fromToken, toToken, sender, receiver, value);
+
+        // Revert the transaction if the below slippage, as specified in _minimum_receive
+        Context.require(sendAmount.compareTo(minimumReceive) >= 0,
+                TAG + ": MinimumReceiveError: Receive amount " + sendAmount + " below supplied minimum");
+
+        // Send the trader their funds
+        Context.call(toToken, "transfer", receiver, sendAmount);
+    }
+
+    /**
+     * Swaps through a path of pools in a single transaction. The output of each hop stays in the Dex and is used as
+     * the input of the next hop, so only the final token is transferred out.
+     *
+     * @param fromToken      Token received by the Dex
+     * @param path           Tokens to swap to, in order
+     * @param sender         Address that sent the tokens
+     * @param receiver       Address that receives the final token
+     * @param value          Amount of fromToken received
+     * @param minimumReceive Minimum amount of the final token to receive
+     */
+    void swapPath(Address fromToken, Address[] path, Address sender, Address receiver, BigInteger value,
+                  BigInteger minimumReceive) {
+        Context.require(path.length > 0 && path.length <= MAX_SWAP_PATH_LENGTH,
+                TAG + ": Swap path must have between 1 and " + MAX_SWAP_PATH_LENGTH + " hops");
+
+        Address dexAddress = Context.getAddress();
+        Address currentToken = fromToken;
+        BigInteger amount = value;
+        for (int i = 0; i < path.length; i++) {
+            Address hopReceiver = i == path.length - 1 ? receiver : dexAddress;
+            amount = swapInPool(currentToken, path[i], sender, hopReceiver, amount);
+            currentToken = path[i];
+        }
+
+        Context.require(amount.compareTo(minimumReceive) >= 0,
+                TAG + ": MinimumReceiveError: Receive amount " + amount + " below supplied minimum");
+        Context.call(currentToken, "transfer", receiver, amount);
+    }
+
+    @External(readonly = true)
+    public BigInteger quote(Address _fromToken, Address _toToken, BigInteger _amount) {
+        return quotePath(_fromToken, new Address[]{_toToken}, _amount);
+    }
+
+    @External(readonly = true)
+    public BigInteger quotePath(Address _fromToken, Address[] _path, BigInteger _amount) {
+        Context.require(_path.length > 0 && _path.length <= MAX_SWAP_PATH_LENGTH,
+                TAG + ": Swap path must have between 1 and " + MAX_SWAP_PATH_LENGTH + " hops");
+        Context.require(_amount.signum() > 0, TAG + ": Amount must be positive");
+
+        BigInteger lpFee = poolLpFee.get();
+        BigInteger balnFee = poolBalnFee.get();
+        Map<Integer, PoolRecord> pools = new HashMap<>();
+        Address currentToken = _fromToken;
+        BigInteger amount = _amount;
+        for (Address token : _path) {
+            PoolRecord pool = loadQuotePool(pools, currentToken, token);
+            Context.require(pool != null, TAG + ": No active pool for " + currentToken + " and " + token);
+            Context.require(pool.isActive(), TAG + ": Pool is not active");
+
+            // Apply the trade to the in memory record, so a pool used twice in the path quotes like swapPath
+            BigInteger balnFees = amount.multiply(balnFee).divide(FEE_SCALE);
+            BigInteger sendAmount = getAmountOut(pool, currentToken, token, amount, lpFee, balnFee);
+            Context.require(sendAmount.signum() > 0, TAG + ": Invalid output amount in trade.");
+            pool.setTotal(currentToken, pool.getTotal(currentToken).add(amount).subtract(balnFees));
+            pool.setTotal(token, pool.getTotal(token).subtract(sendAmount));
+
+            amount = sendAmount;
+            currentToken = token;
+        }
+
+        return amount;
+    }
+
+    /**
+     * Searches the direct pool and the paths through up to two quote coins for the largest output. Only pools with
+     * distinct tokens are combined, so every candidate path uses each pool at most once.
+     *
+     * Hops that swapPath would revert on, through an inactive pool or with no output, are skipped.
+     *
+     * @return The best path, excluding _fromToken, and its output amount. The path is empty if no route exists.
+     */
+    @External(readonly = true)
+    public Map<String, Object> getBestPath(Address _fromToken, Address _toToken, BigInteger _amount) {
+        Context.require(_amount.signum() > 0, TAG + ": Amount must be positive");
+
+        BigInteger lpFee = poolLpFee.get();
+        BigInteger balnFee = poolBalnFee.get();
+        Map<Integer, PoolRecord> pools = new HashMap<>();
+
+        List<Address> coins = new ArrayList<>();
+        int coinCount = quoteCoins.size();
+        for (int i = 0; i < coinCount; i++) {
+            Address coin = quoteCoins.get(i);
+            if (!coin.equals(_fromToken) && !coin.equals(_toToken)) {
+                coins.add(coin);
+            }
+        }
+
+        Address[] bestPath = new Address[0];
+        BigInteger bestAmount = quoteHop(pools, _fromToken, _toToken, _amount, lpFee, balnFee);
+        if (bestAmount.signum() > 0) {
+            bestPath = new Address[]{_toToken};
+        }
+
+        for (Address first : coins) {
+            BigInteger firstAmount = quoteHop(pools, _fromToken, first, _amount, lpFee, balnFee);
+            if (firstAmount.signum() == 0) {
+                continue;
+            }
+
+            BigInteger amount = quoteHop(pools, first, _toToken, firstAmount, lpFee, balnFee);
+            if (amount.compareTo(bestAmount) > 0) {
+                bestAmount = amount;
+                bestPath = new Address[]{first, _toToken};
+            }
+
+            for (Address second : coins) {
+                if (second.equals(first)) {
+                    continue;
+                }
+
+                BigInteger secondAmount = quoteHop(pools, first, second, firstAmount, lpFee, balnFee);
+                if (secondAmount.signum() == 0) {
+                    continue;
+                }
+
+                amount = quoteHop(pools, second, _toToken, secondAmount, lpFee, balnFee);
+                if (amount.compareTo(bestAmount) > 0) {
+                    bestAmount = amount;
+                    bestPath = new Address[]{first, second, _toToken};
+                }
+            }
+        }
+
+        Map<String, Object> bestRoute = new HashMap<>();
+        List<Address> path = new ArrayList<>();
+        for (Address token : bestPath) {
+            path.add(token);
+        }
+        bestRoute.put("path", path);
+        bestRoute.put("amount", bestAmount);
+        return bestRoute;
+    }
+
+    private static BigInteger quoteHop(Map<Integer, PoolRecord> pools, Address fromToken, Address toToken,
+                                       BigInteger value, BigInteger lpFee, BigInteger balnFee) {
+        PoolRecord pool = loadQuotePool(pools, fromToken, toToken);
+        if (pool == null || !pool.isActive()) {
+            return BigInteger.ZERO;
+        }
+
+        return getAmountOut(pool, fromToken, toToken, value, lpFee, balnFee);
+    }
+
+    /**
+     * @return The token pool of the pair, loaded at most once per call, or null if there is none
+     */
+    private static PoolRecord loadQuotePool(Map<Integer, PoolRecord> pools, Address fromToken, Address toToken) {
+        Integer id = poolId.at(fromToken).get(toToken);
+        if (id == null || id == 0 || id == SICXICX_POOL_ID) {
+            return null;
+        }
+
+        PoolRecord pool = pools.get(id);
+        if (pool == null) {
+            pool = PoolRecord.load(id);
+            if (pool == null) {
+                return null;
+            }
+            pools.put(id, pool);
+        }
+
+        return pool;
+    }
+
+    private static BigInteger getAmountOut(PoolRecord pool, Address fromToken, Address toToken, BigInteger value,
+                                           BigInteger lpFee, BigInteger balnFee) {
+        BigInteger fees = value.multiply(lpFee).divide(FEE_SCALE).add(value.multiply(balnFee).divide(FEE_SCALE));
+        return getAmountOut(pool.getTotal(fromToken), pool.getTotal(toToken), value.subtract(fees));
+    }
+
+    /**
+     * @return Amount of toToken removed from a pool by the constant product formula when inputWithoutFees is added
+     */
+    private static BigInteger getAmountOut(BigInteger fromTotal, BigInteger toTotal, BigInteger inputWithoutFees) {
+        BigInteger newFromTotal = fromTotal.add(inputWithoutFees);
+        if (newFromTotal.signum() == 0) {
+            return BigInteger.ZERO;
+        }
+
+        return toTotal.subtract(fromTotal.multiply(toTotal).divide(newFromTotal));
+    }
+
+    /**
+     * Applies a trade to the reserves of a pool and pays out the BALN fees, without transferring the output.
+     *
+     * @return Amount of toToken removed from the pool
+     */
+    private BigInteger swapInPool(Address fromToken, Address toToken, Address sender, Address receiver,
+                                  BigInteger value) {
         int id = getPoolId(fromToken, toToken).intValue();
         isValidPoolId(id);
         Context.require(id != SICXICX_POOL_ID, TAG + ":  Not supported on this API, use the ICX swap API.");
-        Context.require(active.getOrDefault(id, false), TAG + ": Pool is not active");
+        PoolRecord pool = PoolRecord.load(id);
+        Context.require(pool.isActive(), TAG + ": Pool is not active");
 
         BigInteger lpFees = value.multiply(poolLpFee.get()).divide(FEE_SCALE);
         BigInteger balnFees = value.multiply(poolBalnFee.get()).divide(FEE_SCALE);
         BigInteger fees = lpFees.add(balnFees);
 
-        Address poolBaseToken = poolBase.get(id);
+        Address poolBaseToken = pool.getBase();
         boolean isSell = fromToken.equals(poolBaseToken);
 
         // We consider the trade in terms of toToken (token we are trading to), and fromToken (token we are trading
         // away) in the pool. It must obey the xy=k constant product formula.
 
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-        BigInteger oldFromToken = totalTokensInPool.get(fromToken);
-        BigInteger oldToToken = totalTokensInPool.get(toToken);
+        BigInteger oldFromToken = pool.getTotal(fromToken);
+        BigInteger oldToToken = pool.getTotal(toToken);
 
         // We perturb the pool by the asset we are trading in less fees.
         // Fees are credited to LPs at the end of the process.
         BigInteger inputWithoutFees = value.subtract(fees);
         BigInteger newFromToken = oldFromToken.add(inputWithoutFees);
 
-        // Compute the new fromToken according to the constant product formula
-        BigInteger newToToken = (oldFromToken.multiply(oldToToken)).divide(newFromToken);
-
         // Send the trader the amount of toToken removed from the pool by the constant product formula
-        BigInteger sendAmount = oldToToken.subtract(newToToken);
+        BigInteger sendAmount = getAmountOut(oldFromToken, oldToToken, inputWithoutFees);
+        BigInteger newToToken = oldToToken.subtract(sendAmount);
 
         Context.require(sendAmount.compareTo(BigInteger.ZERO) > 0, TAG + ": Invalid output amount in trade.");
-        // Revert the transaction if the below slippage, as specified in _minimum_receive
-        Context.require(sendAmount.compareTo(minimumReceive) >= 0,
-                TAG + ": MinimumReceiveError: Receive amount " + sendAmount + " below supplied minimum");
 
         // Apply fees to fromToken after computing constant product. lpFees are credited to the LPs, the rest are
         // sent to BALN holders.
         newFromToken = newFromToken.add(lpFees);
 
         // Save updated pool totals
-        totalTokensInPool.set(fromToken, newFromToken);
-        totalTokensInPool.set(toToken, newToToken);
+        pool.setTotal(fromToken, newFromToken);
+        pool.setTotal(toToken, newToToken);
+        pool.save();
 
         // Capture details for event logs
         BigInteger totalBase = isSell ? newFromToken : newToToken;
         BigInteger totalQuote = isSell ? newToToken : newFromToken;
 
-        // Send the trader their funds
-        Context.call(toToken, "transfer", receiver, sendAmount);
-
         // Send the platform fees to the fee handler SCORE
         Context.call(fromToken, "transfer", feeHandler.get(), balnFees);
 
@@ -722,20 +919,23 @@ public abstract class AbstractDex implements Dex {
         Swap(BigInteger.valueOf(id), poolBaseToken, fromToken, toToken, sender, receiver, value, sendAmount,
                 BigInteger.valueOf(Context.getBlockTimestamp()), lpFees, balnFees, totalBase, totalQuote, endingPrice
                 , effectiveFillPrice);
+
+        return sendAmount;
     }
 
     void donate(Address fromToken, Address toToken, BigInteger value) {
         int id = getPoolId(fromToken, toToken).intValue();
         isValidPoolId(id);
         Context.require(id != SICXICX_POOL_ID, TAG + ":  Not supported on this API, use the ICX swap API.");
-        Context.require(active.getOrDefault(id, false), TAG + ": Pool is not active");
+        PoolRecord pool = PoolRecord.load(id);
+        Context.require(pool.isActive(), TAG + ": Pool is not active");
 
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-        BigInteger oldFromToken = totalTokensInPool.get(fromToken);
+        BigInteger oldFromToken = pool.getTotal(fromToken);
 
         BigInteger newFromToken = oldFromToken.add(value);
 
-        totalTokensInPool.set(fromToken, newFromToken);
+        pool.setTotal(fromToken, newFromToken);
+        pool.save();
     }
 
     void swapIcx(Address sender, BigInteger value) {
@@ -754,46 +954,65 @@ public abstract class AbstractDex implements Dex {
         Context.require(orderIcxValue.compareTo(oldIcxTotal) <= 0,
                 TAG + ": InsufficientLiquidityError: Not enough ICX suppliers.");
 
-        boolean filled = false;
-        BigInteger orderRemainingIcx = orderIcxValue;
-        int iterations = 0;
-        while (!filled) {
-            iterations += 1;
-            if ((icxQueue.size().equals(BigInteger.ZERO)) || (iterations > ICX_QUEUE_FILL_DEPTH)) {
-                Context.revert(TAG + ": InsufficientLiquidityError: Unable to fill " + orderRemainingIcx + " ICX.");
+        // Walk the queue with reads only, until the running sum of order sizes covers the trade, so an order that
+        // is too deep reverts before any write.
+        List<NodeDB> counterpartyOrders = new ArrayList<>();
+        List<Address> counterparties = new ArrayList<>();
+        List<BigInteger> counterpartySizes = new ArrayList<>();
+        BigInteger queueSize = icxQueue.size();
+        BigInteger matchedTotal = BigInteger.ZERO;
+        NodeDB counterpartyOrder = null;
+        while (matchedTotal.compareTo(orderIcxValue) < 0) {
+            if (counterpartyOrders.size() == ICX_QUEUE_FILL_DEPTH || queueSize.intValue() == counterpartyOrders.size()) {
+                Context.revert(TAG + ": InsufficientLiquidityError: Unable to fill " +
+                        orderIcxValue.subtract(matchedTotal) + " ICX.");
             }
-            NodeDB counterpartyOrder = icxQueue.getHeadNode();
-            Address counterpartyAddress = counterpartyOrder.getUser();
+
+            counterpartyOrder = counterpartyOrder == null ? icxQueue.getHeadNode() :
+                    icxQueue.getNode(counterpartyOrder.getNext());
             BigInteger counterpartyIcx = counterpartyOrder.getSize();
+            counterpartyOrders.add(counterpartyOrder);
+            counterparties.add(counterpartyOrder.getUser());
+            counterpartySizes.add(counterpartyIcx);
+            matchedTotal = matchedTotal.add(counterpartyIcx);
+        }
+
+        // Settle the matched orders. Every order but the last one is filled completely.
+        EnumerableSetDB<Address> sicxIcxProviders = activeAddresses.get(SICXICX_POOL_ID);
+        int day = currentDay.get().intValue();
+        int matchedOrders = counterpartyOrders.size();
+        int filledOrders = 0;
+        BigInteger orderRemainingIcx = orderIcxValue;
+        for (int i = 0; i < matchedOrders; i++) {
+            Address counterpartyAddress = counterparties.get(i);
+            BigInteger counterpartyIcx = counterpartySizes.get(i);
 
             RewardsDataEntry rewardsEntry = new RewardsDataEntry();
             rewardsEntry._user = counterpartyAddress;
             rewardsEntry._balance = counterpartyIcx;
-
             oldData.add(rewardsEntry);
+
             BigInteger matchedIcx = counterpartyIcx.min(orderRemainingIcx);
             orderRemainingIcx = orderRemainingIcx.subtract(matchedIcx);
 
-            boolean counterpartyFilled = matchedIcx.equals(counterpartyIcx);
-            if (counterpartyFilled) {
-                icxQueue.removeHead();
+            SnapshotDB snapshot = SnapshotDB.account(SICXICX_POOL_ID, counterpartyAddress);
+            if (matchedIcx.equals(counterpartyIcx)) {
+                filledOrders++;
                 icxQueueOrderId.set(counterpartyAddress, null);
-                activeAddresses.get(SICXICX_POOL_ID).remove(counterpartyAddress);
-                updateAccountSnapshot(counterpartyAddress, SICXICX_POOL_ID, null);
+                sicxIcxProviders.remove(counterpartyAddress);
+                snapshot.update(null, day);
             } else {
                 BigInteger newCounterpartyValue = counterpartyIcx.subtract(matchedIcx);
-                counterpartyOrder.setSize(newCounterpartyValue);
-                updateAccountSnapshot(counterpartyAddress, SICXICX_POOL_ID, newCounterpartyValue);
+                counterpartyOrders.get(i).setSize(newCounterpartyValue);
+                snapshot.update(newCounterpartyValue, day);
             }
 
             BigInteger lpSicxEarnings = (lpSicxSize.multiply(matchedIcx)).divide(orderIcxValue);
             BigInteger newSicxEarnings = getSicxEarnings(counterpartyAddress).add(lpSicxEarnings);
             sicxEarnings.set(counterpartyAddress, newSicxEarnings);
-
-            if (orderRemainingIcx.compareTo(BigInteger.ZERO) == 0) {
-                filled = true;
-            }
         }
+        icxQueue.removeHeadNodes(filledOrders);
+
         BigInteger newIcxTotal = oldIcxTotal.subtract(orderIcxValue);
         icxQueueTotal.set(newIcxTotal);
         updateTotalSupplySnapshot(SICXICX_POOL_ID, newIcxTotal);
@@ -841,66 +1060,15 @@ public abstract class AbstractDex implements Dex {
     }
 
     void updateAccountSnapshot(Address account, Integer id, BigInteger newValueToUpdate) {
-        BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot = accountBalanceSnapshot.at(id).at(account);
-        updateSnapshotWithNewValue(newValueToUpdate, snapshot);
+        SnapshotDB.account(id, account).update(newValueToUpdate, currentDay.get().intValue());
     }
 
     void updateBalnSnapshot(Integer id, BigInteger newValueToUpdate) {
-        BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot = balnSnapshot.at(id);
-        updateSnapshotWithNewValue(newValueToUpdate, snapshot);
+        SnapshotDB.baln(id).update(newValueToUpdate, currentDay.get().intValue());
     }
 
     void updateTotalSupplySnapshot(Integer id, BigInteger newValueToUpdate) {
-        BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot = totalSupplySnapshot.at(id);
-        updateSnapshotWithNewValue(newValueToUpdate, snapshot);
-    }
-
-    private void updateSnapshotWithNewValue(BigInteger newValue,
-                                            BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot) {
-        BigInteger currentId = currentDay.get();
-        BigInteger length = snapshot.at(LENGTH).getOrDefault(BigInteger.ZERO, BigInteger.ZERO);
-
-        if (length.equals(BigInteger.ZERO)) {
-            snapshot.at(IDS).set(length, currentId);
-            snapshot.at(VALUES).set(length, newValue);
-            snapshot.at(LENGTH).set(BigInteger.ZERO, length.add(BigInteger.ONE));
-            return;
-        }
-
-        BigInteger lastSnapshotId = snapshot.at(IDS).get(length.subtract(BigInteger.ONE));
-        if (lastSnapshotId.compareTo(currentId) < 0) {
-            snapshot.at(IDS).set(length, currentId);
-            snapshot.at(VALUES).set(length, newValue);
-            snapshot.at(LENGTH).set(BigInteger.ZERO, length.add(BigInteger.ONE));
-        } else {
-            snapshot.at(VALUES).set(length.subtract(BigInteger.ONE), newValue);
-        }
-    }
-
-    BigInteger snapshotValueAt(BigInteger _snapshot_id,
-                               BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot) {
-        Context.require(_snapshot_id.compareTo(BigInteger.ZERO) >= 0,
-                TAG + ": Snapshot id is equal to or greater then Zero.");
-        BigInteger low = BigInteger.ZERO;
-        BigInteger high = snapshot.at(LENGTH).getOrDefault(BigInteger.ZERO, BigInteger.ZERO);
-
-        while (low.compareTo(high) < 0) {
-            BigInteger mid = (low.add(high)).divide(BigInteger.TWO);
-            if (snapshot.at(IDS).getOrDefault(mid, BigInteger.ZERO).compareTo(_snapshot_id) > 0) {
-                high = mid;
-            } else {
-                low = mid.add(BigInteger.ONE);
-            }
-        }
-
-        if (snapshot.at(IDS).getOrDefault(BigInteger.ZERO, BigInteger.ZERO).equals(_snapshot_id)) {
-            return snapshot.at(VALUES).getOrDefault(BigInteger.ZERO, BigInteger.ZERO);
-        } else if (low.equals(BigInteger.ZERO)) {
-            return BigInteger.ZERO;
-        }
-
-        BigInteger matchedIndex = low.subtract(BigInteger.ONE);
-        return snapshot.at(VALUES).getOrDefault(matchedIndex, BigInteger.ZERO);
+        SnapshotDB.totalSupply(id).update(newValueToUpdate, currentDay.get().intValue());
     }
 
     void _transfer(Address from, Address to, BigInteger value, Integer id, byte[] data) {
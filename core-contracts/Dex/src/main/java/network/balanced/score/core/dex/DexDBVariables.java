@@ -107,6 +107,7 @@ public class DexDBVariables {
     final static BranchDB<Integer, DictDB<Address, BigInteger>> withdrawLock = Context.newBranchDB(WITHDRAW_LOCK,
             BigInteger.class);
 
+    // Legacy snapshots, read by SnapshotDB for days before its first checkpoint
     // Map: pool_id -> user address -> ids/values/length -> length/0 -> value
     final static BranchDB<Integer, BranchDB<Address, BranchDB<String, DictDB<BigInteger, BigInteger>>>> accountBalanceSnapshot =
             Context.newBranchDB(ACCOUNT_BALANCE_SNAPSHOT, BigInteger.class);
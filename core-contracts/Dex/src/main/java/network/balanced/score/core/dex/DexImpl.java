@@ -18,11 +18,12 @@ package network.balanced.score.core.dex;
 
 
 import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
 import network.balanced.score.core.dex.db.NodeDB;
 import network.balanced.score.lib.structs.RewardsDataEntry;
 import score.Address;
-import score.BranchDB;
 import score.Context;
 import score.DictDB;
 import score.annotation.External;
@@ -171,24 +172,9 @@ public class DexImpl extends AbstractDex {
                 break;
 
             } case "_swap":{
-
-                // Parse the slippage sent by the user in minimumReceive.
-                // If none is sent, use the maximum.
                 JsonObject params = json.get("params").asObject();
-                BigInteger minimumReceive = BigInteger.ZERO;
-                if (params.contains("minimumReceive")) {
-                    minimumReceive = convertToNumber(params.get("minimumReceive"));
-                    require(minimumReceive.signum() >= 0,
-                            TAG + ": Must specify a positive number for minimum to receive");
-                }
-
-                // Check if an alternative recipient of the swap is set.
-                Address receiver;
-                if (params.contains("receiver")) {
-                    receiver = Address.fromString(params.get("receiver").asString());
-                } else {
-                    receiver = _from;
-                }
+                BigInteger minimumReceive = getMinimumReceive(params);
+                Address receiver = getReceiver(params, _from);
 
                 // Get destination coin from the swap
                 require(params.contains("toToken"), TAG + ": No toToken specified in swap");
@@ -197,6 +183,23 @@ public class DexImpl extends AbstractDex {
                 // Perform the swap
                 exchange(fromToken, toToken, _from, receiver, _value, minimumReceive);
 
+                break;
+            } case "_swap_path": {
+                JsonObject params = json.get("params").asObject();
+                BigInteger minimumReceive = getMinimumReceive(params);
+                Address receiver = getReceiver(params, _from);
+
+                require(params.contains("path"), TAG + ": No path specified in swap");
+                JsonArray pathArray = params.get("path").asArray();
+                Address[] path = new Address[pathArray.size()];
+                for (int i = 0; i < path.length; i++) {
+                    JsonValue token = pathArray.get(i);
+                    require(token.isString(), TAG + ": Swap path can only contain token addresses");
+                    path[i] = Address.fromString(token.asString());
+                }
+
+                swapPath(fromToken, path, _from, receiver, _value, minimumReceive);
+
                 break;
             } case "_donate": {
                 require(_from.equals(Context.getOwner()), "Only owner is allowed to donate");
@@ -215,6 +218,27 @@ public class DexImpl extends AbstractDex {
         }
     }
 
+    // Parse the slippage sent by the user in minimumReceive.
+    // If none is sent, use the maximum.
+    private BigInteger getMinimumReceive(JsonObject params) {
+        if (!params.contains("minimumReceive")) {
+            return BigInteger.ZERO;
+        }
+
+        BigInteger minimumReceive = convertToNumber(params.get("minimumReceive"));
+        require(minimumReceive.signum() >= 0, TAG + ": Must specify a positive number for minimum to receive");
+        return minimumReceive;
+    }
+
+    // Check if an alternative recipient of the swap is set.
+    private Address getReceiver(JsonObject params, Address from) {
+        if (params.contains("receiver")) {
+            return Address.fromString(params.get("receiver").asString());
+        }
+
+        return from;
+    }
+
     @External
     public void transfer(Address _to, BigInteger _value, BigInteger _id, @Optional byte[] _data) {
         isDexOn();
@@ -252,21 +276,21 @@ public class DexImpl extends AbstractDex {
         checkDistributions();
         revertOnIncompleteRewards();
         Address user = Context.getCaller();
-        Address baseToken = poolBase.get(_id.intValue());
-        require(baseToken!=null, TAG + ": invalid pool id");
+        PoolRecord pool = PoolRecord.load(_id.intValue());
+        require(pool != null, TAG + ": invalid pool id");
+        Address baseToken = pool.getBase();
         DictDB<Address, BigInteger> userLPBalance = balance.at(_id.intValue());
         BigInteger userBalance = userLPBalance.getOrDefault(user, BigInteger.ZERO);
 
         revertOnWithdrawalLock(user, _id.intValue());
-        require(active.getOrDefault(_id.intValue(), false), TAG + ": Pool is not active");
+        require(pool.isActive(), TAG + ": Pool is not active");
         require(_value.compareTo(BigInteger.ZERO) > 0, TAG + " Cannot withdraw a negative or zero balance");
         require(_value.compareTo(userBalance) <= 0, TAG + ": Insufficient balance");
 
 
-        Address quoteToken = poolQuote.get(_id.intValue());
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(_id.intValue());
-        BigInteger totalBase = totalTokensInPool.get(baseToken);
-        BigInteger totalQuote = totalTokensInPool.get(quoteToken);
+        Address quoteToken = pool.getQuote();
+        BigInteger totalBase = pool.getBaseTotal();
+        BigInteger totalQuote = pool.getQuoteTotal();
         BigInteger totalLPToken = poolLpTotal.get(_id.intValue());
 
         BigInteger userQuoteLeft = ((userBalance.subtract(_value)).multiply(totalQuote)).divide(totalLPToken);
@@ -287,8 +311,9 @@ public class DexImpl extends AbstractDex {
         require(newTotal.compareTo(MIN_LIQUIDITY) >= 0,
                 TAG + ": Cannot withdraw pool past minimum LP token amount");
 
-        totalTokensInPool.set(baseToken, newBase);
-        totalTokensInPool.set(quoteToken, newQuote);
+        pool.setTotal(baseToken, newBase);
+        pool.setTotal(quoteToken, newQuote);
+        pool.save();
         userLPBalance.set(user, newUserBalance);
         poolLpTotal.set(_id.intValue(), newTotal);
 
@@ -350,6 +375,7 @@ public class DexImpl extends AbstractDex {
 
         // Initialize pool total variables
         BigInteger liquidity;
+        PoolRecord pool;
         BigInteger poolBaseAmount = BigInteger.ZERO;
         BigInteger poolQuoteAmount = BigInteger.ZERO;
         BigInteger poolLpAmount = poolLpTotal.getOrDefault(id, BigInteger.ZERO);
@@ -375,6 +401,7 @@ public class DexImpl extends AbstractDex {
             active.set(id, true);
             poolBase.set(id, _baseToken);
             poolQuote.set(id, _quoteToken);
+            pool = new PoolRecord(id, _baseToken, _quoteToken);
 
             liquidity = (_baseValue.multiply(_quoteValue)).sqrt();
             require(liquidity.compareTo(MIN_LIQUIDITY) >= 0,
@@ -382,8 +409,9 @@ public class DexImpl extends AbstractDex {
             MarketAdded(BigInteger.valueOf(id), _baseToken, _quoteToken, _baseValue, _quoteValue);
         } else {
             // Pool already exists, supply in the permitted order.
-            Address poolBaseAddress = poolBase.get(id);
-            Address poolQuoteAddress = poolQuote.get(id);
+            pool = PoolRecord.load(id);
+            Address poolBaseAddress = pool.getBase();
+            Address poolQuoteAddress = pool.getQuote();
 
             require((poolBaseAddress.equals(_baseToken)) && (poolQuoteAddress.equals(_quoteToken)),
                     TAG + ": Must supply " + _baseToken.toString() + " as base and " + _quoteToken.toString() +
@@ -393,9 +421,8 @@ public class DexImpl extends AbstractDex {
             // Min(ratio of quote from base, ratio of base from quote)
             // Any assets not used are refunded
 
-            DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-            poolBaseAmount = totalTokensInPool.get(_baseToken);
-            poolQuoteAmount = totalTokensInPool.get(_quoteToken);
+            poolBaseAmount = pool.getBaseTotal();
+            poolQuoteAmount = pool.getQuoteTotal();
 
 
             BigInteger baseFromQuote = _quoteValue.multiply(poolBaseAmount).divide(poolQuoteAmount);
@@ -420,9 +447,9 @@ public class DexImpl extends AbstractDex {
         poolBaseAmount = poolBaseAmount.add(baseToCommit);
         poolQuoteAmount = poolQuoteAmount.add(quoteToCommit);
 
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-        totalTokensInPool.set(_baseToken, poolBaseAmount);
-        totalTokensInPool.set(_quoteToken, poolQuoteAmount);
+        pool.setTotal(_baseToken, poolBaseAmount);
+        pool.setTotal(_quoteToken, poolQuoteAmount);
+        pool.save();
 
         // Deduct the user's deposit
         userDepositedBase = userDepositedBase.subtract(baseToCommit);
@@ -485,8 +512,7 @@ public class DexImpl extends AbstractDex {
     public BigInteger balanceOfAt(Address _account, BigInteger _id, BigInteger _snapshot_id, @Optional boolean _twa) {
 
         int poolId = _id.intValue();
-        BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot = accountBalanceSnapshot.at(poolId).at(_account);
-        return snapshotValueAt(_snapshot_id, snapshot);
+        return SnapshotDB.account(poolId, _account).valueAt(_snapshot_id);
 
     }
 
@@ -494,16 +520,14 @@ public class DexImpl extends AbstractDex {
     public BigInteger totalSupplyAt(BigInteger _id, BigInteger _snapshot_id, @Optional boolean _twa) {
 
         int poolId = _id.intValue();
-        BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot = totalSupplySnapshot.at(poolId);
-        return snapshotValueAt(_snapshot_id, snapshot);
+        return SnapshotDB.totalSupply(poolId).valueAt(_snapshot_id);
     }
 
     @External(readonly = true)
     public BigInteger totalBalnAt(BigInteger _id, BigInteger _snapshot_id, @Optional boolean _twa) {
 
         int poolId = _id.intValue();
-        BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot = balnSnapshot.at(poolId);
-        return snapshotValueAt(_snapshot_id, snapshot);
+        return SnapshotDB.baln(poolId).valueAt(_snapshot_id);
     }
 
     @External(readonly = true)
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package network.balanced.score.core.dex;
+
+import score.Address;
+import score.Context;
+import score.DictDB;
+
+import java.math.BigInteger;
+
+import static network.balanced.score.core.dex.DexDBVariables.*;
+import static network.balanced.score.core.dex.utils.Const.TAG;
+
+/**
+ * Tokens, active flag and reserves of a pool, packed into a single storage record so a swap reads and writes one slot.
+ * <p>
+ * Layout (version 1): {@code [version][active][base][quote][base total length][base total][quote total length]
+ * [quote total]}, where addresses take {@link Address#LENGTH} bytes, flags and lengths are single bytes and amounts
+ * are big-endian two's complement. Pools without a record are read from the legacy {@code poolTotal},
+ * {@code baseToken}, {@code quoteToken} and {@code activePool} storage, which is not updated once a record exists.
+ */
+class PoolRecord {
+    static final byte VERSION = 1;
+
+    private static final String POOL_RECORD = "pool_record";
+    private static final DictDB<Integer, byte[]> records = Context.newDictDB(POOL_RECORD, byte[].class);
+
+    private final int id;
+    private final Address base;
+    private final Address quote;
+    private boolean active;
+    private BigInteger baseTotal;
+    private BigInteger quoteTotal;
+
+    PoolRecord(int id, Address base, Address quote) {
+        this(id, base, quote, true, BigInteger.ZERO, BigInteger.ZERO);
+    }
+
+    private PoolRecord(int id, Address base, Address quote, boolean active, BigInteger baseTotal,
+                       BigInteger quoteTotal) {
+        this.id = id;
+        this.base = base;
+        this.quote = quote;
+        this.active = active;
+        this.baseTotal = baseTotal;
+        this.quoteTotal = quoteTotal;
+    }
+
+    /**
+     * @param id Pool id
+     * @return The pool, or null if no pool with the id exists
+     */
+    static PoolRecord load(int id) {
+        byte[] record = records.get(id);
+        if (record != null) {
+            return fromBytes(id, record);
+        }
+
+        Address base = poolBase.get(id);
+        if (base == null) {
+            return null;
+        }
+
+        Address quote = poolQuote.get(id);
+        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
+        return new PoolRecord(id, base, quote, DexDBVariables.active.getOrDefault(id, false),
+                totalTokensInPool.getOrDefault(base, BigInteger.ZERO),
+                totalTokensInPool.getOrDefault(quote, BigInteger.ZERO));
+    }
+
+    Address getBase() {
+        return base;
+    }
+
+    Address getQuote() {
+        return quote;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    void setActive(boolean active) {
+        this.active = active;
+    }
+
+    BigInteger getBaseTotal() {
+        return baseTotal;
+    }
+
+    BigInteger getQuoteTotal() {
+        return quoteTotal;
+    }
+
+    /**
+     * @return Reserve of the token in the pool, zero if the token is not part of the pool
+     */
+    BigInteger getTotal(Address token) {
+        if (token.equals(base)) {
+            return baseTotal;
+        } else if (token.equals(quote)) {
+            return quoteTotal;
+        }
+
+        return BigInteger.ZERO;
+    }
+
+    void setTotal(Address token, BigInteger value) {
+        if (token.equals(base)) {
+            baseTotal = value;
+        } else {
+            Context.require(token.equals(quote), TAG + ": " + token + " is not part of pool " + id);
+            quoteTotal = value;
+        }
+    }
+
+    void save() {
+        records.set(id, toBytes());
+    }
+
+    private byte[] toBytes() {
+        byte[] baseBytes = base.toByteArray();
+        byte[] quoteBytes = quote.toByteArray();
+        byte[] baseTotalBytes = baseTotal.toByteArray();
+        byte[] quoteTotalBytes = quoteTotal.toByteArray();
+
+        byte[] record = new byte[4 + 2 * Address.LENGTH + baseTotalBytes.length + quoteTotalBytes.length];
+        record[0] = VERSION;
+        record[1] = (byte) (active ? 1 : 0);
+        int offset = 2;
+        System.arraycopy(baseBytes, 0, record, offset, Address.LENGTH);
+        offset += Address.LENGTH;
+        System.arraycopy(quoteBytes, 0, record, offset, Address.LENGTH);
+        offset += Address.LENGTH;
+
+        record[offset++] = (byte) baseTotalBytes.length;
+        System.arraycopy(baseTotalBytes, 0, record, offset, baseTotalBytes.length);
+        offset += baseTotalBytes.length;
+
+        record[offset++] = (byte) quoteTotalBytes.length;
+        System.arraycopy(quoteTotalBytes, 0, record, offset, quoteTotalBytes.length);
+        return record;
+    }
+
+    private static PoolRecord fromBytes(int id, byte[] record) {
+        Context.require(record[0] == VERSION, TAG + ": Unsupported pool record version " + record[0]);
+
+        boolean active = record[1] == 1;
+        int offset = 2;
+        Address base = new Address(copy(record, offset, Address.LENGTH));
+        offset += Address.LENGTH;
+        Address quote = new Address(copy(record, offset, Address.LENGTH));
+        offset += Address.LENGTH;
+
+        int length = record[offset++] & 0xff;
+        BigInteger baseTotal = new BigInteger(copy(record, offset, length));
+        offset += length;
+
+        length = record[offset++] & 0xff;
+        BigInteger quoteTotal = new BigInteger(copy(record, offset, length));
+        return new PoolRecord(id, base, quote, active, baseTotal, quoteTotal);
+    }
+
+    private static byte[] copy(byte[] record, int offset, int length) {
+        byte[] value = new byte[length];
+        System.arraycopy(record, offset, value, 0, length);
+        return value;
+    }
+}
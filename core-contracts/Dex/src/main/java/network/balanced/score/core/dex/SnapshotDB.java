@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dex;
+
+import score.Address;
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+import score.VarDB;
+
+import java.math.BigInteger;
+
+import static network.balanced.score.core.dex.DexDBVariables.*;
+import static network.balanced.score.core.dex.utils.Const.*;
+
+/**
+ * Daily checkpoints of a balance, each packed into a single storage record keyed by an int index, with a separate int
+ * length.
+ * <p>
+ * Layout (version 1): {@code [version][day][balance]}, where the day takes four big-endian bytes and the balance is
+ * big-endian two's complement over the rest of the record. An empty balance is zero. Days before the first checkpoint
+ * are read from the legacy {@code ids}/{@code values}/{@code length} snapshot, which is not updated anymore.
+ */
+class SnapshotDB {
+    static final byte VERSION = 1;
+
+    private static final String CHECKPOINTS = "_checkpoints";
+    private static final String CHECKPOINTS_LENGTH = "_checkpoints_length";
+    private static final int DAY_OFFSET = 1;
+    private static final int BALANCE_OFFSET = 5;
+
+    private final DictDB<Integer, byte[]> checkpoints;
+    private final VarDB<Integer> length;
+    private final BranchDB<String, DictDB<BigInteger, BigInteger>> legacy;
+
+    private SnapshotDB(String key, BranchDB<String, DictDB<BigInteger, BigInteger>> legacy) {
+        this.checkpoints = Context.newDictDB(key + CHECKPOINTS, byte[].class);
+        this.length = Context.newVarDB(key + CHECKPOINTS_LENGTH, Integer.class);
+        this.legacy = legacy;
+    }
+
+    static SnapshotDB account(int id, Address account) {
+        return new SnapshotDB("account_balance_" + id + "_" + account, accountBalanceSnapshot.at(id).at(account));
+    }
+
+    static SnapshotDB totalSupply(int id) {
+        return new SnapshotDB("total_supply_" + id, totalSupplySnapshot.at(id));
+    }
+
+    static SnapshotDB baln(int id) {
+        return new SnapshotDB("baln_" + id, balnSnapshot.at(id));
+    }
+
+    /**
+     * Records the value for the day, overwriting the last checkpoint if it is not older than the day.
+     */
+    void update(BigInteger value, int day) {
+        int count = length.getOrDefault(0);
+        if (count > 0) {
+            int lastDay = getDay(checkpoints.get(count - 1));
+            if (lastDay >= day) {
+                checkpoints.set(count - 1, toBytes(lastDay, value));
+                return;
+            }
+        }
+
+        checkpoints.set(count, toBytes(day, value));
+        length.set(count + 1);
+    }
+
+    BigInteger valueAt(BigInteger snapshotId) {
+        Context.require(snapshotId.compareTo(BigInteger.ZERO) >= 0,
+                TAG + ": Snapshot id is equal to or greater then Zero.");
+        int day = snapshotId.bitLength() < 32 ? snapshotId.intValue() : Integer.MAX_VALUE;
+
+        // Find the last checkpoint taken on or before the day
+        int low = 0;
+        int high = length.getOrDefault(0);
+        byte[] match = null;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            byte[] checkpoint = checkpoints.get(mid);
+            if (getDay(checkpoint) > day) {
+                high = mid;
+            } else {
+                match = checkpoint;
+                low = mid + 1;
+            }
+        }
+
+        if (match == null) {
+            return legacyValueAt(snapshotId);
+        }
+
+        return getBalance(match);
+    }
+
+    private BigInteger legacyValueAt(BigInteger snapshotId) {
+        BigInteger low = BigInteger.ZERO;
+        BigInteger high = legacy.at(LENGTH).getOrDefault(BigInteger.ZERO, BigInteger.ZERO);
+
+        while (low.compareTo(high) < 0) {
+            BigInteger mid = (low.add(high)).divide(BigInteger.TWO);
+            if (legacy.at(IDS).getOrDefault(mid, BigInteger.ZERO).compareTo(snapshotId) > 0) {
+                high = mid;
+            } else {
+                low = mid.add(BigInteger.ONE);
+            }
+        }
+
+        if (legacy.at(IDS).getOrDefault(BigInteger.ZERO, BigInteger.ZERO).equals(snapshotId)) {
+            return legacy.at(VALUES).getOrDefault(BigInteger.ZERO, BigInteger.ZERO);
+        } else if (low.equals(BigInteger.ZERO)) {
+            return BigInteger.ZERO;
+        }
+
+        BigInteger matchedIndex = low.subtract(BigInteger.ONE);
+        return legacy.at(VALUES).getOrDefault(matchedIndex, BigInteger.ZERO);
+    }
+
+    private static byte[] toBytes(int day, BigInteger value) {
+        byte[] balance = value == null || value.signum() == 0 ? new byte[0] : value.toByteArray();
+        byte[] checkpoint = new byte[BALANCE_OFFSET + balance.length];
+        checkpoint[0] = VERSION;
+        checkpoint[DAY_OFFSET] = (byte) (day >>> 24);
+        checkpoint[DAY_OFFSET + 1] = (byte) (day >>> 16);
+        checkpoint[DAY_OFFSET + 2] = (byte) (day >>> 8);
+        checkpoint[DAY_OFFSET + 3] = (byte) day;
+        System.arraycopy(balance, 0, checkpoint, BALANCE_OFFSET, balance.length);
+        return checkpoint;
+    }
+
+    private static int getDay(byte[] checkpoint) {
+        Context.require(checkpoint[0] == VERSION, TAG + ": Unsupported snapshot checkpoint version " + checkpoint[0]);
+        return ((checkpoint[DAY_OFFSET] & 0xff) << 24) | ((checkpoint[DAY_OFFSET + 1] & 0xff) << 16)
+                | ((checkpoint[DAY_OFFSET + 2] & 0xff) << 8) | (checkpoint[DAY_OFFSET + 3] & 0xff);
+    }
+
+    private static BigInteger getBalance(byte[] checkpoint) {
+        int length = checkpoint.length - BALANCE_OFFSET;
+        if (length == 0) {
+            return BigInteger.ZERO;
+        }
+
+        byte[] balance = new byte[length];
+        System.arraycopy(checkpoint, BALANCE_OFFSET, balance, 0, length);
+        return new BigInteger(balance);
+    }
+}
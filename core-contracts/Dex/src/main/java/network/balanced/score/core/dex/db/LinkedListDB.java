@@ -132,6 +132,31 @@ public class LinkedListDB {
         length.set(size.subtract(BigInteger.ONE));
     }
 
+    /**
+     * Removes the first count nodes, updating the head and length of the list once.
+     */
+    public void removeHeadNodes(int count) {
+        BigInteger size = length.getOrDefault(BigInteger.ZERO);
+        if (count <= 0) {
+            return;
+        }
+        if (size.compareTo(BigInteger.valueOf(count)) <= 0) {
+            clear();
+            return;
+        }
+
+        BigInteger currentId = headId.getOrDefault(DEFAULT_NODE_ID);
+        for (int i = 0; i < count; i++) {
+            NodeDB nodeToRemove = getNode(currentId);
+            currentId = nodeToRemove.getNext();
+            nodeToRemove.delete();
+        }
+
+        headId.set(currentId);
+        getNode(currentId).setPrev(DEFAULT_NODE_ID);
+        length.set(size.subtract(BigInteger.valueOf(count)));
+    }
+
     public void removeTail() {
         BigInteger size = length.getOrDefault(BigInteger.ZERO);
         if (size.equals(BigInteger.ZERO)) {
@@ -31,6 +31,7 @@ public class Const {
     public static final BigInteger FEE_SCALE = BigInteger.valueOf(10_000);
     public static final int FIRST_NON_BALANCED_POOL = 6;
     public static final Integer ICX_QUEUE_FILL_DEPTH = 50;
+    public static final int MAX_SWAP_PATH_LENGTH = 4;
 
     public static final int USDS_BNUSD_ID = 10;
     public static final int IUSDT_BNUSD_ID = 15;
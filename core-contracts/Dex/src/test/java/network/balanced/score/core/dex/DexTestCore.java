@@ -16,6 +16,7 @@
 
 package network.balanced.score.core.dex;
 
+import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.iconloop.score.test.Account;
 import network.balanced.score.core.dex.utils.Const;
@@ -30,6 +31,7 @@ import score.Context;
 
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static network.balanced.score.core.dex.utils.Const.SICXICX_POOL_ID;
@@ -37,6 +39,7 @@ import static network.balanced.score.lib.utils.Constants.EXA;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 
 
 public class DexTestCore extends DexTestBase {
@@ -369,6 +372,170 @@ public class DexTestCore extends DexTestBase {
         assertEquals(balance, newBalance);
     }
 
+    @Test
+    void tokenFallback_swapUpdatesPoolTotals() {
+        Account account = sm.createAccount();
+        BigInteger balnValue = BigInteger.valueOf(50L).multiply(EXA);
+        BigInteger bnusdValue = BigInteger.valueOf(25L).multiply(EXA);
+        BigInteger swapValue = BigInteger.valueOf(100L).multiply(EXA);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+        supplyLiquidity(account, balnScore, bnusdScore, balnValue, bnusdValue, false);
+        BigInteger poolId = (BigInteger) dexScore.call("getPoolId", balnScore.getAddress(), bnusdScore.getAddress());
+
+        JsonObject jsonData = new JsonObject();
+        JsonObject params = new JsonObject();
+        params.add("toToken", balnScore.getAddress().toString());
+        jsonData.add("method", "_swap");
+        jsonData.add("params", params);
+        dexScore.invoke(bnusdScore, "tokenFallback", account.getAddress(), swapValue, jsonData.toString().getBytes());
+
+        BigInteger lpFees = swapValue.multiply(BigInteger.valueOf(15L)).divide(Const.FEE_SCALE);
+        BigInteger balnFees = swapValue.multiply(BigInteger.valueOf(15L)).divide(Const.FEE_SCALE);
+        BigInteger newBnusd = bnusdValue.add(swapValue.subtract(lpFees).subtract(balnFees));
+        BigInteger newBaln = bnusdValue.multiply(balnValue).divide(newBnusd);
+        newBnusd = newBnusd.add(lpFees);
+
+        assertEquals(newBaln, dexScore.call("getPoolTotal", poolId, balnScore.getAddress()));
+        assertEquals(newBnusd, dexScore.call("getPoolTotal", poolId, bnusdScore.getAddress()));
+        Map<String, Object> poolStats = (Map<String, Object>) dexScore.call("getPoolStats", poolId);
+        assertEquals(newBaln, poolStats.get("base"));
+        assertEquals(newBnusd, poolStats.get("quote"));
+        assertEquals(newBnusd.multiply(EXA).divide(newBaln), dexScore.call("getPrice", poolId));
+
+        dexScore.invoke(governanceScore, "permit", poolId, false);
+        Executable swapInactivePool = () -> dexScore.invoke(bnusdScore, "tokenFallback", account.getAddress(),
+                swapValue, jsonData.toString().getBytes());
+        expectErrorMessage(swapInactivePool, "Pool is not active");
+    }
+
+    @Test
+    void tokenFallback_swapPath() {
+        Account account = sm.createAccount();
+        BigInteger balnValue = BigInteger.valueOf(50L).multiply(EXA);
+        BigInteger bnusdValue = BigInteger.valueOf(25L).multiply(EXA);
+        BigInteger sicxValue = BigInteger.valueOf(100L).multiply(EXA);
+        BigInteger swapValue = BigInteger.valueOf(10L).multiply(EXA);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+        supplyLiquidity(account, balnScore, bnusdScore, balnValue, bnusdValue, false);
+        supplyLiquidity(account, sicxScore, bnusdScore, sicxValue, sicxValue, false);
+        BigInteger balnPoolId = (BigInteger) dexScore.call("getPoolId", balnScore.getAddress(),
+                bnusdScore.getAddress());
+        BigInteger sicxPoolId = (BigInteger) dexScore.call("getPoolId", sicxScore.getAddress(),
+                bnusdScore.getAddress());
+
+        JsonArray path = new JsonArray();
+        path.add(bnusdScore.getAddress().toString());
+        path.add(sicxScore.getAddress().toString());
+        JsonObject params = new JsonObject();
+        params.add("path", path);
+        JsonObject jsonData = new JsonObject();
+        jsonData.add("method", "_swap_path");
+        jsonData.add("params", params);
+        dexScore.invoke(balnScore, "tokenFallback", account.getAddress(), swapValue, jsonData.toString().getBytes());
+
+        BigInteger fees = swapValue.multiply(BigInteger.valueOf(15L)).divide(Const.FEE_SCALE);
+        BigInteger newBaln = balnValue.add(swapValue.subtract(fees).subtract(fees));
+        BigInteger newBnusd = balnValue.multiply(bnusdValue).divide(newBaln);
+        BigInteger bnusdReceived = bnusdValue.subtract(newBnusd);
+        newBaln = newBaln.add(fees);
+
+        BigInteger hopFees = bnusdReceived.multiply(BigInteger.valueOf(15L)).divide(Const.FEE_SCALE);
+        BigInteger newSicxPoolBnusd = sicxValue.add(bnusdReceived.subtract(hopFees).subtract(hopFees));
+        BigInteger newSicx = sicxValue.multiply(sicxValue).divide(newSicxPoolBnusd);
+        BigInteger sicxReceived = sicxValue.subtract(newSicx);
+        newSicxPoolBnusd = newSicxPoolBnusd.add(hopFees);
+
+        assertEquals(newBaln, dexScore.call("getPoolTotal", balnPoolId, balnScore.getAddress()));
+        assertEquals(newBnusd, dexScore.call("getPoolTotal", balnPoolId, bnusdScore.getAddress()));
+        assertEquals(newSicx, dexScore.call("getPoolTotal", sicxPoolId, sicxScore.getAddress()));
+        assertEquals(newSicxPoolBnusd, dexScore.call("getPoolTotal", sicxPoolId, bnusdScore.getAddress()));
+
+        // Only the final token leaves the dex
+        contextMock.verify(() -> Context.call(sicxScore.getAddress(), "transfer", account.getAddress(),
+                sicxReceived));
+        contextMock.verify(() -> Context.call(eq(bnusdScore.getAddress()), eq("transfer"), eq(account.getAddress()),
+                any(BigInteger.class)), never());
+
+        jsonData.get("params").asObject().add("minimumReceive", sicxValue.toString());
+        Executable belowMinimum = () -> dexScore.invoke(balnScore, "tokenFallback", account.getAddress(), swapValue,
+                jsonData.toString().getBytes());
+        expectErrorMessage(belowMinimum, "MinimumReceiveError");
+
+        JsonArray longPath = new JsonArray();
+        for (int i = 0; i <= Const.MAX_SWAP_PATH_LENGTH; i++) {
+            longPath.add(i % 2 == 0 ? bnusdScore.getAddress().toString() : balnScore.getAddress().toString());
+        }
+        JsonObject longParams = new JsonObject();
+        longParams.add("path", longPath);
+        JsonObject longData = new JsonObject();
+        longData.add("method", "_swap_path");
+        longData.add("params", longParams);
+        Executable pathTooLong = () -> dexScore.invoke(balnScore, "tokenFallback", account.getAddress(), swapValue,
+                longData.toString().getBytes());
+        expectErrorMessage(pathTooLong, "Swap path must have between 1 and " + Const.MAX_SWAP_PATH_LENGTH + " hops");
+    }
+
+    @Test
+    void quoteAndBestPath() {
+        Account account = sm.createAccount();
+        BigInteger balnValue = BigInteger.valueOf(50L).multiply(EXA);
+        BigInteger bnusdValue = BigInteger.valueOf(25L).multiply(EXA);
+        BigInteger sicxValue = BigInteger.valueOf(100L).multiply(EXA);
+        BigInteger swapValue = BigInteger.valueOf(10L).multiply(EXA);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+        supplyLiquidity(account, balnScore, bnusdScore, balnValue, bnusdValue, false);
+        supplyLiquidity(account, sicxScore, bnusdScore, sicxValue, sicxValue, false);
+
+        BigInteger fees = swapValue.multiply(BigInteger.valueOf(30L)).divide(Const.FEE_SCALE);
+        BigInteger newBaln = balnValue.add(swapValue.subtract(fees));
+        BigInteger expectedOut = bnusdValue.subtract(balnValue.multiply(bnusdValue).divide(newBaln));
+        assertEquals(expectedOut, dexScore.call("quote", balnScore.getAddress(), bnusdScore.getAddress(),
+                swapValue));
+
+        Address[] path = new Address[]{bnusdScore.getAddress(), balnScore.getAddress()};
+        BigInteger quoted = (BigInteger) dexScore.call("quotePath", sicxScore.getAddress(), path, swapValue);
+
+        Map<String, Object> bestPath = (Map<String, Object>) dexScore.call("getBestPath", sicxScore.getAddress(),
+                balnScore.getAddress(), swapValue);
+        assertEquals(List.of(bnusdScore.getAddress(), balnScore.getAddress()), bestPath.get("path"));
+        assertEquals(quoted, bestPath.get("amount"));
+
+        Map<String, Object> noPath = (Map<String, Object>) dexScore.call("getBestPath", sicxScore.getAddress(),
+                Account.newScoreAccount(scoreCount++).getAddress(), swapValue);
+        assertEquals(List.of(), noPath.get("path"));
+        assertEquals(BigInteger.ZERO, noPath.get("amount"));
+
+        // The quote matches the executed swap
+        JsonArray jsonPath = new JsonArray();
+        jsonPath.add(bnusdScore.getAddress().toString());
+        jsonPath.add(balnScore.getAddress().toString());
+        JsonObject params = new JsonObject();
+        params.add("path", jsonPath);
+        JsonObject jsonData = new JsonObject();
+        jsonData.add("method", "_swap_path");
+        jsonData.add("params", params);
+        dexScore.invoke(sicxScore, "tokenFallback", account.getAddress(), swapValue, jsonData.toString().getBytes());
+        contextMock.verify(() -> Context.call(balnScore.getAddress(), "transfer", account.getAddress(), quoted));
+
+        Executable noPool = () -> dexScore.call("quote", sicxScore.getAddress(), balnScore.getAddress(), swapValue);
+        expectErrorMessage(noPool, "No active pool");
+
+        // A route through an inactive pool reverts like swapPath, and is not offered as the best path
+        BigInteger balnPoolId = (BigInteger) dexScore.call("getPoolId", balnScore.getAddress(),
+                bnusdScore.getAddress());
+        dexScore.invoke(governanceScore, "permit", balnPoolId, false);
+        Executable inactiveHop = () -> dexScore.call("quotePath", sicxScore.getAddress(), path, swapValue);
+        expectErrorMessage(inactiveHop, "Pool is not active");
+
+        Map<String, Object> inactivePath = (Map<String, Object>) dexScore.call("getBestPath",
+                sicxScore.getAddress(), balnScore.getAddress(), swapValue);
+        assertEquals(List.of(), inactivePath.get("path"));
+        assertEquals(BigInteger.ZERO, inactivePath.get("amount"));
+    }
+
     @Test
     void tokenFallback_donate() {
         Account account = sm.createAccount();
@@ -456,6 +623,93 @@ public class DexTestCore extends DexTestBase {
 
     }
 
+    @Test
+    void tokenfallback_swapSicxFillsSeveralOrders() {
+        turnDexOn();
+        contextMock.when(() -> Context.call(eq(stakingScore.getAddress()), eq("getTodayRate"))).thenReturn(EXA);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+        contextMock.when(() -> Context.transfer(any(Address.class), any(BigInteger.class))).then(invocationOnMock -> null);
+
+        BigInteger orderSize = BigInteger.valueOf(20L).multiply(EXA);
+        Account first = sm.createAccount();
+        Account second = sm.createAccount();
+        Account third = sm.createAccount();
+        supplyIcxLiquidity(first, orderSize);
+        supplyIcxLiquidity(second, orderSize);
+        supplyIcxLiquidity(third, orderSize);
+
+        JsonObject jsonData = new JsonObject();
+        jsonData.add("method", "_swap_icx");
+        BigInteger swapValue = BigInteger.valueOf(50L).multiply(EXA);
+        dexScore.invoke(sicxScore, "tokenFallback", first.getAddress(), swapValue, jsonData.toString().getBytes());
+
+        // 1% total fees, of which 0.3% go to BALN holders
+        BigInteger poolId = BigInteger.valueOf(Const.SICXICX_POOL_ID);
+        BigInteger orderIcxValue = swapValue.multiply(BigInteger.valueOf(99L)).divide(BigInteger.valueOf(100L));
+        BigInteger lpSicxSize = swapValue.multiply(BigInteger.valueOf(997L)).divide(BigInteger.valueOf(1000L));
+        BigInteger thirdMatched = orderIcxValue.subtract(orderSize.multiply(BigInteger.TWO));
+        assertEquals(BigInteger.ZERO, dexScore.call("balanceOf", first.getAddress(), poolId));
+        assertEquals(BigInteger.ZERO, dexScore.call("balanceOf", second.getAddress(), poolId));
+        assertEquals(orderSize.subtract(thirdMatched), dexScore.call("balanceOf", third.getAddress(), poolId));
+        assertEquals(lpSicxSize.multiply(orderSize).divide(orderIcxValue),
+                dexScore.call("getSicxEarnings", second.getAddress()));
+        assertEquals(lpSicxSize.multiply(thirdMatched).divide(orderIcxValue),
+                dexScore.call("getSicxEarnings", third.getAddress()));
+        assertEquals(BigInteger.ONE, dexScore.call("totalDexAddresses", poolId));
+
+        // The remaining order is now the head of the queue
+        BigInteger secondSwapValue = BigInteger.valueOf(5L).multiply(EXA);
+        dexScore.invoke(sicxScore, "tokenFallback", first.getAddress(), secondSwapValue,
+                jsonData.toString().getBytes());
+        BigInteger secondOrderIcxValue = secondSwapValue.multiply(BigInteger.valueOf(99L))
+                .divide(BigInteger.valueOf(100L));
+        assertEquals(orderSize.subtract(thirdMatched).subtract(secondOrderIcxValue),
+                dexScore.call("balanceOf", third.getAddress(), poolId));
+        assertEquals(orderSize.subtract(thirdMatched).subtract(secondOrderIcxValue),
+                ((Map<String, Object>) dexScore.call("getPoolStats", poolId)).get("total_supply"));
+    }
+
+    @Test
+    void tokenfallback_swapSicxQueueFillDepth() {
+        turnDexOn();
+        contextMock.when(() -> Context.call(eq(stakingScore.getAddress()), eq("getTodayRate"))).thenReturn(EXA);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+        contextMock.when(() -> Context.transfer(any(Address.class), any(BigInteger.class))).then(invocationOnMock -> null);
+
+        int orders = Const.ICX_QUEUE_FILL_DEPTH - 1;
+        BigInteger orderSize = EXA;
+        for (int i = 0; i < orders; i++) {
+            supplyIcxLiquidity(sm.createAccount(), orderSize);
+        }
+        Account last = sm.createAccount();
+        supplyIcxLiquidity(last, orderSize);
+
+        JsonObject jsonData = new JsonObject();
+        jsonData.add("method", "_swap_icx");
+        // 1% total fees, so the first orders are filled and the last one up to the depth partially
+        BigInteger swapValue = BigInteger.valueOf(orders + 1).multiply(EXA);
+        dexScore.invoke(sicxScore, "tokenFallback", last.getAddress(), swapValue, jsonData.toString().getBytes());
+
+        BigInteger poolId = BigInteger.valueOf(Const.SICXICX_POOL_ID);
+        BigInteger orderIcxValue = swapValue.multiply(BigInteger.valueOf(99L)).divide(BigInteger.valueOf(100L));
+        BigInteger remaining = orderSize.multiply(BigInteger.valueOf(orders + 1)).subtract(orderIcxValue);
+        assertEquals(BigInteger.ONE, dexScore.call("totalDexAddresses", poolId));
+        assertEquals(remaining, dexScore.call("balanceOf", last.getAddress(), poolId));
+        assertEquals(remaining, ((Map<String, Object>) dexScore.call("getPoolStats", poolId)).get("total_supply"));
+
+        // An order that needs one more maker than the depth reverts, even though the queue total covers it
+        for (int i = 0; i < Const.ICX_QUEUE_FILL_DEPTH; i++) {
+            supplyIcxLiquidity(sm.createAccount(), orderSize);
+        }
+        BigInteger deepSwapValue = BigInteger.valueOf(Const.ICX_QUEUE_FILL_DEPTH + 1).multiply(EXA);
+        Executable swapTooDeep = () -> dexScore.invoke(sicxScore, "tokenFallback", last.getAddress(), deepSwapValue,
+                jsonData.toString().getBytes());
+        expectErrorMessage(swapTooDeep, "InsufficientLiquidityError: Unable to fill");
+        assertEquals(remaining, dexScore.call("balanceOf", last.getAddress(), poolId));
+    }
+
     @Test
     void onIRC31Received() {
         // Arrange.
@@ -616,6 +870,37 @@ public class DexTestCore extends DexTestBase {
         assertEquals(poolStats.get("total_supply"), totalSupply);
     }
 
+    @Test
+    void balanceOfAt_checkpointsPerDay() {
+        Account account = sm.createAccount();
+        turnDexOn();
+        contextMock.when(() -> Context.call(any(Address.class), eq("getTodayRate"))).thenReturn(EXA);
+
+        BigInteger orderValue = BigInteger.valueOf(100L).multiply(EXA);
+        supplyIcxLiquidity(account, orderValue);
+        BigInteger firstDay = (BigInteger) dexScore.call("getDay");
+        BigInteger poolId = BigInteger.valueOf(SICXICX_POOL_ID);
+
+        sm.getBlock().increase(43200L);
+        supplyIcxLiquidity(account, orderValue);
+        BigInteger secondDay = (BigInteger) dexScore.call("getDay");
+        assertEquals(firstDay.add(BigInteger.ONE), secondDay);
+
+        BigInteger total = orderValue.multiply(BigInteger.TWO);
+        assertEquals(BigInteger.ZERO, dexScore.call("balanceOfAt", account.getAddress(), poolId,
+                firstDay.subtract(BigInteger.ONE), false));
+        assertEquals(orderValue, dexScore.call("balanceOfAt", account.getAddress(), poolId, firstDay, false));
+        assertEquals(total, dexScore.call("balanceOfAt", account.getAddress(), poolId, secondDay, false));
+        assertEquals(total, dexScore.call("balanceOfAt", account.getAddress(), poolId,
+                secondDay.add(BigInteger.TEN), false));
+        assertEquals(orderValue, dexScore.call("totalSupplyAt", poolId, firstDay, false));
+        assertEquals(total, dexScore.call("totalSupplyAt", poolId, secondDay, false));
+
+        Executable negativeSnapshot = () -> dexScore.call("balanceOfAt", account.getAddress(), poolId,
+                BigInteger.ONE.negate(), false);
+        expectErrorMessage(negativeSnapshot, "Snapshot id is equal to or greater then Zero.");
+    }
+
     @Test
     void getTotalValue() {
         Account account = sm.createAccount();
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dex;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import network.balanced.score.lib.test.UnitTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.Address;
+import score.BranchDB;
+import score.DictDB;
+
+import java.math.BigInteger;
+
+import static network.balanced.score.core.dex.DexDBVariables.accountBalanceSnapshot;
+import static network.balanced.score.core.dex.DexDBVariables.totalSupplySnapshot;
+import static network.balanced.score.core.dex.utils.Const.IDS;
+import static network.balanced.score.core.dex.utils.Const.LENGTH;
+import static network.balanced.score.core.dex.utils.Const.VALUES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SnapshotDBTest extends UnitTest {
+
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private static final Address user = sm.createAccount().getAddress();
+    private static final int POOL_ID = 2;
+
+    private Score dummyScore;
+
+    public static class DummyScore {
+
+        public DummyScore() {
+
+        }
+
+        public void seedLegacyAccount(int id, Address account, BigInteger[] days, BigInteger[] values) {
+            seedLegacy(accountBalanceSnapshot.at(id).at(account), days, values);
+        }
+
+        public void seedLegacyTotalSupply(int id, BigInteger[] days, BigInteger[] values) {
+            seedLegacy(totalSupplySnapshot.at(id), days, values);
+        }
+
+        private void seedLegacy(BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot, BigInteger[] days,
+                                BigInteger[] values) {
+            for (int i = 0; i < days.length; i++) {
+                snapshot.at(IDS).set(BigInteger.valueOf(i), days[i]);
+                snapshot.at(VALUES).set(BigInteger.valueOf(i), values[i]);
+            }
+            snapshot.at(LENGTH).set(BigInteger.ZERO, BigInteger.valueOf(days.length));
+        }
+
+        public void updateAccount(int id, Address account, BigInteger value, int day) {
+            SnapshotDB.account(id, account).update(value, day);
+        }
+
+        public void updateTotalSupply(int id, BigInteger value, int day) {
+            SnapshotDB.totalSupply(id).update(value, day);
+        }
+
+        public BigInteger accountAt(int id, Address account, BigInteger day) {
+            return SnapshotDB.account(id, account).valueAt(day);
+        }
+
+        public BigInteger totalSupplyAt(int id, BigInteger day) {
+            return SnapshotDB.totalSupply(id).valueAt(day);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        dummyScore = sm.deploy(owner, DummyScore.class);
+    }
+
+    private BigInteger accountAt(int day) {
+        return (BigInteger) dummyScore.call("accountAt", POOL_ID, user, BigInteger.valueOf(day));
+    }
+
+    private BigInteger totalSupplyAt(int day) {
+        return (BigInteger) dummyScore.call("totalSupplyAt", POOL_ID, BigInteger.valueOf(day));
+    }
+
+    private static BigInteger[] amounts(long... values) {
+        BigInteger[] amounts = new BigInteger[values.length];
+        for (int i = 0; i < values.length; i++) {
+            amounts[i] = BigInteger.valueOf(values[i]);
+        }
+        return amounts;
+    }
+
+    @Test
+    void valueAt_legacyThenCheckpoints() {
+        // Arrange
+        dummyScore.invoke(owner, "seedLegacyAccount", POOL_ID, user, amounts(5, 8), amounts(100, 150));
+        dummyScore.invoke(owner, "seedLegacyTotalSupply", POOL_ID, amounts(5, 8), amounts(1000, 1500));
+
+        // Assert before the upgrade
+        assertEquals(BigInteger.ZERO, accountAt(4));
+        assertEquals(BigInteger.valueOf(100), accountAt(5));
+        assertEquals(BigInteger.valueOf(100), accountAt(7));
+        assertEquals(BigInteger.valueOf(150), accountAt(8));
+        assertEquals(BigInteger.valueOf(150), accountAt(20));
+        assertEquals(BigInteger.valueOf(1500), totalSupplyAt(20));
+
+        // Act
+        dummyScore.invoke(owner, "updateAccount", POOL_ID, user, BigInteger.valueOf(175), 12);
+        dummyScore.invoke(owner, "updateTotalSupply", POOL_ID, BigInteger.valueOf(1750), 12);
+
+        // Assert days before, between and after the legacy entries and the checkpoint
+        assertEquals(BigInteger.ZERO, accountAt(4));
+        assertEquals(BigInteger.valueOf(100), accountAt(5));
+        assertEquals(BigInteger.valueOf(100), accountAt(7));
+        assertEquals(BigInteger.valueOf(150), accountAt(8));
+        assertEquals(BigInteger.valueOf(150), accountAt(11));
+        assertEquals(BigInteger.valueOf(175), accountAt(12));
+        assertEquals(BigInteger.valueOf(175), accountAt(20));
+
+        assertEquals(BigInteger.ZERO, totalSupplyAt(4));
+        assertEquals(BigInteger.valueOf(1000), totalSupplyAt(6));
+        assertEquals(BigInteger.valueOf(1500), totalSupplyAt(11));
+        assertEquals(BigInteger.valueOf(1750), totalSupplyAt(12));
+        assertEquals(BigInteger.valueOf(1750), totalSupplyAt(20));
+
+        // Act
+        dummyScore.invoke(owner, "updateAccount", POOL_ID, user, BigInteger.ZERO, 12);
+        dummyScore.invoke(owner, "updateAccount", POOL_ID, user, BigInteger.valueOf(50), 15);
+
+        // Assert
+        assertEquals(BigInteger.valueOf(150), accountAt(11));
+        assertEquals(BigInteger.ZERO, accountAt(12));
+        assertEquals(BigInteger.ZERO, accountAt(14));
+        assertEquals(BigInteger.valueOf(50), accountAt(15));
+    }
+
+    @Test
+    void valueAt_checkpointsWithoutLegacy() {
+        // Act
+        dummyScore.invoke(owner, "updateAccount", POOL_ID, user, BigInteger.valueOf(175), 12);
+
+        // Assert
+        assertEquals(BigInteger.ZERO, accountAt(11));
+        assertEquals(BigInteger.valueOf(175), accountAt(12));
+        assertEquals(BigInteger.ZERO, totalSupplyAt(12));
+    }
+}
@@ -928,6 +928,36 @@ public class GovernanceImpl {
         Context.call(Addresses.get("loans"), "setRedeemBatchSize", _value.intValue());
     }
 
+    @External
+    public void setMaxRedeemBatches(BigInteger _value) {
+        onlyOwner();
+        Context.call(Addresses.get("loans"), "setMaxRedeemBatches", _value.intValue());
+    }
+
+    @External
+    public void setMaxDistributeCalls(BigInteger _value) {
+        onlyOwner();
+        Context.call(Addresses.get("loans"), "setMaxDistributeCalls", _value.intValue());
+    }
+
+    @External
+    public void setPrecomputeBudget(BigInteger _value) {
+        onlyOwner();
+        Context.call(Addresses.get("loans"), "setPrecomputeBudget", _value.intValue());
+    }
+
+    @External
+    public void setPackedRebalanceLog(boolean _value) {
+        onlyOwner();
+        Context.call(Addresses.get("loans"), "setPackedRebalanceLog", _value);
+    }
+
+    @External
+    public void setDataSourceColumnarBatch(String _name, boolean _value) {
+        onlyOwner();
+        Context.call(Addresses.get("rewards"), "setDataSourceColumnarBatch", _name, _value);
+    }
+
     @External
     public void addPoolOnStakedLp(BigInteger _id) {
         onlyOwner();
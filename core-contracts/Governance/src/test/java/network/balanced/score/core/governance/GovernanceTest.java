@@ -883,6 +883,92 @@ public class GovernanceTest extends GovernanceTestBase {
 
     }
 
+    @Test
+    void setMaxRedeemBatches() {
+        // Arrange
+        BigInteger _value = BigInteger.TWO;
+        Account notOwner = sm.createAccount();
+        String expectedErrorMessage = "SenderNotScoreOwner: Sender=" + notOwner.getAddress() + "Owner=" + owner.getAddress();
+
+        // Act & Assert
+        Executable withNotOwner = () -> governance.invoke(notOwner, "setMaxRedeemBatches", _value);
+        expectErrorMessage(withNotOwner, expectedErrorMessage);
+
+        // Act
+        governance.invoke(owner, "setMaxRedeemBatches", _value);
+
+        // Assert
+        verify(loans.mock).setMaxRedeemBatches(_value.intValue());
+    }
+
+    @Test
+    void setMaxDistributeCalls() {
+        // Arrange
+        Account notOwner = sm.createAccount();
+        String expectedErrorMessage = "SenderNotScoreOwner: Sender=" + notOwner.getAddress() + "Owner=" + owner.getAddress();
+
+        // Act & Assert
+        Executable withNotOwner = () -> governance.invoke(notOwner, "setMaxDistributeCalls", BigInteger.valueOf(4));
+        expectErrorMessage(withNotOwner, expectedErrorMessage);
+
+        // Act
+        governance.invoke(owner, "setMaxDistributeCalls", BigInteger.valueOf(4));
+
+        // Assert
+        verify(loans.mock).setMaxDistributeCalls(4);
+    }
+
+    @Test
+    void setPrecomputeBudget() {
+        // Arrange
+        Account notOwner = sm.createAccount();
+        String expectedErrorMessage = "SenderNotScoreOwner: Sender=" + notOwner.getAddress() + "Owner=" + owner.getAddress();
+
+        // Act & Assert
+        Executable withNotOwner = () -> governance.invoke(notOwner, "setPrecomputeBudget", BigInteger.valueOf(500));
+        expectErrorMessage(withNotOwner, expectedErrorMessage);
+
+        // Act
+        governance.invoke(owner, "setPrecomputeBudget", BigInteger.valueOf(500));
+
+        // Assert
+        verify(loans.mock).setPrecomputeBudget(500);
+    }
+
+    @Test
+    void setPackedRebalanceLog() {
+        // Arrange
+        Account notOwner = sm.createAccount();
+        String expectedErrorMessage = "SenderNotScoreOwner: Sender=" + notOwner.getAddress() + "Owner=" + owner.getAddress();
+
+        // Act & Assert
+        Executable withNotOwner = () -> governance.invoke(notOwner, "setPackedRebalanceLog", true);
+        expectErrorMessage(withNotOwner, expectedErrorMessage);
+
+        // Act
+        governance.invoke(owner, "setPackedRebalanceLog", true);
+
+        // Assert
+        verify(loans.mock).setPackedRebalanceLog(true);
+    }
+
+    @Test
+    void setDataSourceColumnarBatch() {
+        // Arrange
+        Account notOwner = sm.createAccount();
+        String expectedErrorMessage = "SenderNotScoreOwner: Sender=" + notOwner.getAddress() + "Owner=" + owner.getAddress();
+
+        // Act & Assert
+        Executable withNotOwner = () -> governance.invoke(notOwner, "setDataSourceColumnarBatch", "Loans", true);
+        expectErrorMessage(withNotOwner, expectedErrorMessage);
+
+        // Act
+        governance.invoke(owner, "setDataSourceColumnarBatch", "Loans", true);
+
+        // Assert
+        verify(rewards.mock).setDataSourceColumnarBatch("Loans", true);
+    }
+
     @Test
     void addPoolOnStakedLp() {
         // Arrange
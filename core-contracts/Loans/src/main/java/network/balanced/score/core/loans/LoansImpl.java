@@ -21,21 +21,29 @@ import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 import network.balanced.score.core.loans.asset.Asset;
 import network.balanced.score.core.loans.asset.AssetDB;
+import network.balanced.score.core.loans.asset.AssetRegistry;
 import network.balanced.score.core.loans.linkedlist.LinkedListDB;
+import network.balanced.score.core.loans.linkedlist.LinkedListIterator;
 import network.balanced.score.core.loans.positions.Position;
 import network.balanced.score.core.loans.positions.PositionsDB;
+import network.balanced.score.core.loans.positions.RatioBuckets;
 import network.balanced.score.core.loans.snapshot.Snapshot;
 import network.balanced.score.core.loans.snapshot.SnapshotDB;
+import network.balanced.score.core.loans.utils.PriceContext;
+import network.balanced.score.core.loans.utils.Standing;
 import network.balanced.score.core.loans.utils.Token;
 import network.balanced.score.lib.interfaces.Loans;
 import network.balanced.score.lib.structs.PrepDelegations;
 import network.balanced.score.lib.structs.RewardsDataEntry;
+import network.balanced.score.lib.utils.OrderedBatch;
+import network.balanced.score.lib.utils.RebalanceChangeLog;
 import score.Address;
 import score.Context;
 import score.annotation.EventLog;
 import score.annotation.External;
 import score.annotation.Optional;
 import score.annotation.Payable;
+import scorex.util.ArrayList;
 import scorex.util.HashMap;
 
 import java.math.BigInteger;
@@ -115,27 +123,72 @@ public class LoansImpl implements Loans {
     @External
     public void migrateUserData(Address address) {
         Position position = PositionsDB.getPosition(address);
-        int id = position.getSnapshotId(-1);
-
-        int assetSymbolsCount = AssetDB.assetSymbols.size();
-        for (int i = 0; i < assetSymbolsCount; i++) {
-            String symbol = AssetDB.assetSymbols.get(i);
-            if (position.getDataMigrationStatus(symbol)) {
-                continue;
-            }
+        AssetRegistry assets = new AssetRegistry();
+        position.setAssetRegistry(assets);
+        position.migrateBalances();
+        position.countCollateral();
+    }
+
+    /**
+     * Migrates the positions with ids from _start_id to the continuous rewards layout, at most _count of them. Anyone
+     * can call it. Without a start id the migration resumes after the last id that all positions before it are
+     * migrated up to.
+     *
+     * @param _start_id First position id to migrate, 0 to resume from the migration cursor
+     * @param _count    Number of positions to migrate
+     */
+    @External
+    public void migrateBatch(int _start_id, int _count) {
+        Context.require(!isBeforeContinuousRewardDay(), TAG + ": Positions can only be migrated once continuous " +
+                "rewards are active.");
+        Context.require(_count > 0 && _count <= MAX_MIGRATION_BATCH, TAG + ": Migration batch size must be between 1 " +
+                "and " + MAX_MIGRATION_BATCH + ".");
+
+        int cursor = migrationCursor.getOrDefault(0);
+        int startId = _start_id > 0 ? _start_id : cursor + 1;
+        int endId = Math.min(startId + _count - 1, PositionsDB.size());
+        if (startId > endId) {
+            return;
+        }
 
-            if (AssetDB.getAsset(symbol).isCollateral()) {
-                position.setCollateralPosition(symbol, position.getAssets(id, symbol));
-            } else {
-                BigInteger debt = position.getAssets(id, symbol);
-                BigInteger previousTotalDebt = LoansVariables.totalDebts.getOrDefault(symbol, BigInteger.ZERO);
-                BigInteger newTotalDebt = previousTotalDebt.add(debt);
+        AssetRegistry assets = new AssetRegistry();
+        for (int id = startId; id <= endId; id++) {
+            Position position = PositionsDB.get(id);
+            position.setAssetRegistry(assets);
+            position.migrateBalances();
+            position.countCollateral();
+            position.updateRatioBucket();
+        }
 
-                LoansVariables.totalDebts.set(symbol, newTotalDebt);
-                position.setLoansPosition(SICX_SYMBOL, symbol, debt);
-            }
-            position.setDataMigrationStatus(symbol, true);
+        if (startId <= cursor + 1 && endId > cursor) {
+            cursor = endId;
+            migrationCursor.set(cursor);
         }
+
+        PositionsMigrated(BigInteger.valueOf(startId), BigInteger.valueOf(endId), BigInteger.valueOf(cursor));
+    }
+
+    @External(readonly = true)
+    public int getMigrationCursor() {
+        return migrationCursor.getOrDefault(0);
+    }
+
+    /**
+     * Adds the next days since the first snapshot to the snapshot day index, so that historic snapshot lookups no
+     * longer binary search. Anyone can call it until the index cursor passes the last snapshot.
+     *
+     * @param _count Number of days to index
+     */
+    @External
+    public void indexSnapshotDays(int _count) {
+        Context.require(_count > 0 && _count <= MAX_SNAPSHOT_INDEX_BATCH, TAG + ": Snapshot index batch size must be " +
+                "between 1 and " + MAX_SNAPSHOT_INDEX_BATCH + ".");
+        SnapshotDB.indexDays(_count);
+    }
+
+    @External(readonly = true)
+    public int getSnapshotIndexCursor() {
+        return SnapshotDB.getIndexCursor();
     }
 
     @External(readonly = true)
@@ -236,6 +289,31 @@ public class LoansImpl implements Loans {
         return PositionsDB.get(_index).getAddress();
     }
 
+    /**
+     * Returns the owners of positions whose collateral ratio may be at or below the liquidation ratio at the given
+     * sICX price, most collateralized last. The ratio only counts sICX collateral and bnUSD debt, positions with
+     * other debt are always included. Positions are indexed on their first balance change or migration batch.
+     *
+     * @param _sicx_price Price of sICX in bnUSD
+     * @param _limit      Maximum number of positions to return
+     * @return Owners of the positions at risk
+     */
+    @External(readonly = true)
+    public List<Address> getAtRiskPositions(BigInteger _sicx_price, @Optional int _limit) {
+        Context.require(_sicx_price.signum() > 0, TAG + ": sICX price must be positive.");
+        if (_limit <= 0 || _limit > MAX_AT_RISK_POSITIONS) {
+            _limit = MAX_AT_RISK_POSITIONS;
+        }
+
+        BigInteger maxRatio = liquidationRatio.get().multiply(EXA).multiply(EXA).divide(POINTS.multiply(_sicx_price));
+        List<Address> owners = new ArrayList<>();
+        for (int id : RatioBuckets.getPositionsAtOrBelow(maxRatio, _limit)) {
+            owners.add(PositionsDB.get(id).getAddress());
+        }
+
+        return owners;
+    }
+
     @External(readonly = true)
     public Map<String, String> getAssetTokens() {
         return AssetDB.getAssetSymbolsAndAddress();
@@ -251,6 +329,41 @@ public class LoansImpl implements Loans {
         return AssetDB.getTotalCollateral();
     }
 
+    @External(readonly = true)
+    public Map<String, BigInteger> getTotalDebts() {
+        requireTotalsComplete();
+        AssetRegistry assets = new AssetRegistry();
+        Map<String, BigInteger> debts = new HashMap<>();
+        for (String symbol : assets.getActiveAssets()) {
+            debts.put(symbol, totalDebts.getOrDefault(symbol, BigInteger.ZERO));
+        }
+
+        return debts;
+    }
+
+    @External(readonly = true)
+    public Map<String, BigInteger> getTotalCollateralDeposits() {
+        requireTotalsComplete();
+        AssetRegistry assets = new AssetRegistry();
+        Map<String, BigInteger> deposits = new HashMap<>();
+        for (String symbol : assets.getActiveCollateral()) {
+            deposits.put(symbol, totalCollateral.getOrDefault(symbol, BigInteger.ZERO));
+        }
+
+        return deposits;
+    }
+
+    /**
+     * The running totals only include positions that were changed or migrated since they were introduced, so they
+     * are incomplete until migrateBatch has visited every position.
+     */
+    private void requireTotalsComplete() {
+        int cursor = migrationCursor.getOrDefault(0);
+        int positions = PositionsDB.size();
+        Context.require(cursor >= positions, TAG + ": Totals are incomplete until every position is migrated, " +
+                cursor + " of " + positions + " migrated.");
+    }
+
     @External(readonly = true)
     public Map<String, Object> getAccountPositions(Address _owner) {
         Context.require(PositionsDB.hasPosition(_owner), _owner + " does not have a position in Balanced");
@@ -263,6 +376,51 @@ public class LoansImpl implements Loans {
         return PositionsDB.get(_index).toMap(_day.intValue());
     }
 
+    @External(readonly = true)
+    public Map<String, Object> getPositionsBatch(int _start_id, int _limit) {
+        Context.require(_start_id > 0, TAG + ": Position ids start at 1.");
+        if (_limit <= 0 || _limit > MAX_POSITIONS_EXPORT) {
+            _limit = MAX_POSITIONS_EXPORT;
+        }
+
+        int size = PositionsDB.size();
+        int endId = Math.min(_start_id + _limit - 1, size);
+        int count = Math.max(0, endId - _start_id + 1);
+
+        AssetRegistry assets = new AssetRegistry();
+        Map<String, List<BigInteger>> collateral = new HashMap<>();
+        Map<String, List<BigInteger>> debt = new HashMap<>();
+        for (String symbol : assets.getActiveCollateral()) {
+            collateral.put(symbol, new ArrayList<>(count));
+        }
+        for (String symbol : assets.getActiveAssets()) {
+            debt.put(symbol, new ArrayList<>(count));
+        }
+
+        List<Integer> ids = new ArrayList<>(count);
+        List<Address> addresses = new ArrayList<>(count);
+        for (int id = _start_id; id <= endId; id++) {
+            Position position = PositionsDB.get(id);
+            position.setAssetRegistry(assets);
+            ids.add(id);
+            addresses.add(Position.getAddress(id));
+            for (Map.Entry<String, List<BigInteger>> column : collateral.entrySet()) {
+                column.getValue().add(position.getAssetPosition(column.getKey()));
+            }
+            for (Map.Entry<String, List<BigInteger>> column : debt.entrySet()) {
+                column.getValue().add(position.getAssetPosition(column.getKey()));
+            }
+        }
+
+        return Map.of(
+                "ids", ids,
+                "addresses", addresses,
+                "collateral", collateral,
+                "debt", debt,
+                "next_id", endId >= size ? -1 : endId + 1
+        );
+    }
+
     @External(readonly = true)
     public Map<String, Map<String, Object>> getAvailableAssets() {
         return AssetDB.getActiveAssets();
@@ -387,6 +545,31 @@ public class LoansImpl implements Loans {
         return batch;
     }
 
+    @External(readonly = true)
+    public Map<String, Object> getDataBatchColumns(String _name, BigInteger _snapshot_id, int _limit,
+                                                   @Optional int _cursor) {
+        Context.require(isBeforeContinuousRewardDay(_snapshot_id), continuousRewardsErrorMessage);
+
+        Snapshot snapshot = SnapshotDB.get(_snapshot_id.intValue());
+        int totalMiners = snapshot.getMiningSize();
+        int start = Math.max(0, Math.min(_cursor, totalMiners));
+        int end = Math.min(start + Math.max(0, _limit), totalMiners);
+
+        List<Address> addresses = new ArrayList<>(end - start);
+        List<BigInteger> values = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            int id = snapshot.getMining(i);
+            addresses.add(Position.getAddress(id));
+            values.add(snapshot.getPositionStates(id, "total_debt"));
+        }
+
+        return Map.of(
+                "addresses", addresses,
+                "values", values,
+                "next_cursor", end == totalMiners ? -1 : end
+        );
+    }
+
     @External
     public boolean checkForNewDay() {
         loansOn();
@@ -396,28 +579,38 @@ public class LoansImpl implements Loans {
             currentDay.set(day);
             PositionsDB.takeSnapshot();
             Snapshot(_getDay());
-            AssetDB.updateDeadMarkets();
+            AssetDB.refreshDeadMarkets();
             return true;
         }
 
-        // TODO See the update frequency of checking dead markets
-        AssetDB.updateDeadMarkets();
+        AssetDB.refreshDeadMarkets();
         return false;
     }
 
     @External
     public void checkDistributions(BigInteger _day, boolean _new_day) {
         loansOn();
-        Boolean rewardsDone = LoansVariables.rewardsDone.get();
-        Boolean dividendsDone = LoansVariables.dividendsDone.get();
-
-        if (_new_day && rewardsDone && dividendsDone) {
-            LoansVariables.rewardsDone.set(false);
-            LoansVariables.dividendsDone.set(false);
-        } else if (!dividendsDone) {
-            LoansVariables.dividendsDone.set(Context.call(Boolean.class, dividends.get(), "distribute"));
-        } else if (!rewardsDone) {
-            LoansVariables.rewardsDone.set(Context.call(Boolean.class, rewards.get(), "distribute"));
+        boolean rewardsDone = LoansVariables.rewardsDone.get();
+        boolean dividendsDone = LoansVariables.dividendsDone.get();
+
+        // Resetting the flags for a new day uses up one of the calls, so a single call keeps the original pacing.
+        int calls = maxDistributeCalls.getOrDefault(1);
+        for (int i = 0; i < calls; i++) {
+            if (_new_day && rewardsDone && dividendsDone) {
+                rewardsDone = false;
+                dividendsDone = false;
+                LoansVariables.rewardsDone.set(false);
+                LoansVariables.dividendsDone.set(false);
+                _new_day = false;
+            } else if (!dividendsDone) {
+                dividendsDone = Context.call(Boolean.class, dividends.get(), "distribute");
+                LoansVariables.dividendsDone.set(dividendsDone);
+            } else if (!rewardsDone) {
+                rewardsDone = Context.call(Boolean.class, rewards.get(), "distribute");
+                LoansVariables.rewardsDone.set(rewardsDone);
+            } else {
+                return;
+            }
         }
     }
 
@@ -454,7 +647,8 @@ public class LoansImpl implements Loans {
         loansOn();
         BigInteger deposit = Context.getValue();
         Address sender = Context.getCaller();
-        Address sicxAddress = AssetDB.getAsset(SICX_SYMBOL).getAssetAddress();
+        PriceContext prices = new PriceContext();
+        Address sicxAddress = prices.getAssets().getAddress(SICX_SYMBOL);
 
         Address depositor = _from;
         BigInteger sicxDeposited = _value;
@@ -476,16 +670,20 @@ public class LoansImpl implements Loans {
         BigInteger day = _getDay();
         checkDistributions(day, isNewDay);
         Position position = PositionsDB.getPosition(depositor);
+        position.setAssetRegistry(prices.getAssets());
         if (sicxDeposited.compareTo(BigInteger.ZERO) > 0) {
             position.setAssetPosition(SICX_SYMBOL, position.getAssetPosition(SICX_SYMBOL).add(sicxDeposited));
             CollateralReceived(depositor, SICX_SYMBOL, sicxDeposited);
         }
 
         if (_asset == null || _asset.equals("") || _amount == null || _amount.compareTo(BigInteger.ZERO) <= 0) {
+            if (sicxDeposited.compareTo(BigInteger.ZERO) > 0) {
+                position.updateRatioBucket();
+            }
             return;
         }
 
-        originateLoan(_asset, _amount, depositor);
+        originateLoan(_asset, _amount, depositor, prices);
     }
 
     @External
@@ -513,9 +711,10 @@ public class LoansImpl implements Loans {
         BigInteger badDebtValue = badDebt.min(_value);
         asset.burnFrom(from, badDebtValue);
 
-        BigInteger sicxCollateralToRedeem = badDebtRedeem(from, asset, badDebtValue);
+        PriceContext prices = new PriceContext();
+        BigInteger sicxCollateralToRedeem = badDebtRedeem(from, asset, badDebtValue, prices);
         transferToken(SICX_SYMBOL, from, sicxCollateralToRedeem, "Bad Debt redeemed.", new byte[0]);
-        asset.checkForDeadMarket();
+        asset.checkForDeadMarket(prices);
         BadDebtRetired(from, _symbol, badDebtValue, sicxCollateralToRedeem);
     }
 
@@ -525,14 +724,17 @@ public class LoansImpl implements Loans {
         Context.require(_value.compareTo(BigInteger.ZERO) > 0, TAG + ": Amount retired must be greater than zero.");
 
         Address from = Context.getCaller();
-        Asset asset = AssetDB.getAsset(_symbol);
+        PriceContext prices = new PriceContext();
+        AssetRegistry assets = prices.getAssets();
+        Asset asset = assets.getAsset(_symbol);
 
-        Address assetAddress = asset.getAssetAddress();
+        Address assetAddress = assets.getAddress(_symbol);
         Token assetContract = new Token(assetAddress);
 
-        Context.require(!asset.isCollateral(), TAG + ": " + _symbol + " is not an active, borrowable asset on " +
+        Context.require(!assets.isCollateral(_symbol), TAG + ": " + _symbol + " is not an active, borrowable asset " +
+                "on Balanced.");
+        Context.require(assets.isActive(_symbol), TAG + ": " + _symbol + " is not an active, borrowable asset on " +
                 "Balanced.");
-        Context.require(asset.isActive(), TAG + ": " + _symbol + " is not an active, borrowable asset on Balanced.");
         Context.require(assetContract.balanceOf(from).compareTo(_value) >= 0, TAG + ": Insufficient balance.");
         Context.require(PositionsDB.hasPosition(from), TAG + ": No debt repaid because, " + from + " does not have a " +
                 "position in Balanced");
@@ -543,6 +745,7 @@ public class LoansImpl implements Loans {
 
         BigInteger oldSupply = totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
         Position position = PositionsDB.getPosition(from);
+        position.setAssetRegistry(assets);
         BigInteger borrowed = position.getAssetPosition(_symbol);
 
         Context.require(_value.compareTo(borrowed) <= 0, TAG + ": Repaid amount is greater than the amount in the " +
@@ -560,6 +763,7 @@ public class LoansImpl implements Loans {
             position.setAssetPosition(_symbol, null);
             repaid = borrowed;
         }
+        position.updateRatioBucket();
 
         asset.burnFrom(from, repaid);
         if (isBeforeContinuousRewardDay()) {
@@ -570,7 +774,7 @@ public class LoansImpl implements Loans {
 
         Context.call(rewards.get(), "updateRewardsData", "Loans", oldSupply, from, borrowed);
 
-        asset.checkForDeadMarket();
+        asset.getDeadMarket(prices);
         String logMessage = "Loan of " + repaid + " " + _symbol + " repaid to Balanced.";
         LoanRepaid(from, _symbol, repaid, logMessage);
     }
@@ -583,26 +787,18 @@ public class LoansImpl implements Loans {
         Asset asset = AssetDB.getAsset(BNUSD_SYMBOL);
         BigInteger oldTotalDebt = totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
         BigInteger rate = Context.call(BigInteger.class, dex.get(), "getSicxBnusdPrice");
-        int batchSize = redeemBatch.get();
         LinkedListDB borrowers = asset.getBorrowers();
 
-        int nodeId = borrowers.getHeadId();
-        BigInteger totalBatchDebt = BigInteger.ZERO;
-        Map<Integer, BigInteger> positionsMap = new HashMap<>();
-
-        int iterations = Math.min(batchSize, borrowers.size());
-        for (int i = 0; i < iterations; i++) {
-            BigInteger debt = borrowers.nodeValue(nodeId);
-            positionsMap.put(nodeId, debt);
-            totalBatchDebt = totalBatchDebt.add(debt);
-            borrowers.headToTail();
-            nodeId = borrowers.getHeadId();
+        BigInteger retirePercent = maxRetirePercent.get();
+        BigInteger requiredDebt = BigInteger.ZERO;
+        if (retirePercent.signum() > 0) {
+            requiredDebt = _total_tokens_required.multiply(POINTS).multiply(rate).divide(retirePercent.multiply(EXA));
         }
 
-        borrowers.serialize();
+        OrderedBatch positionsBatch = collectRedeemBatches(borrowers, requiredDebt);
+        BigInteger totalBatchDebt = positionsBatch.getTotal();
 
-        BigInteger sicxToSell =
-                maxRetirePercent.get().multiply(totalBatchDebt).multiply(EXA).divide(POINTS.multiply(rate));
+        BigInteger sicxToSell = retirePercent.multiply(totalBatchDebt).multiply(EXA).divide(POINTS.multiply(rate));
         sicxToSell = sicxToSell.min(_total_tokens_required);
 
         expectedToken.set(asset.getAssetAddress());
@@ -617,12 +813,14 @@ public class LoansImpl implements Loans {
         BigInteger remainingSupply = totalBatchDebt;
         BigInteger remainingBnusd = bnUSDReceived;
 
+        boolean packedLog = packedRebalanceLog.getOrDefault(false);
         StringBuilder changeLog = new StringBuilder("{");
-        RewardsDataEntry[] rewardsBatchList = new RewardsDataEntry[iterations];
+        RebalanceChangeLog packedChangeLog = new RebalanceChangeLog(positionsBatch.size());
+        RewardsDataEntry[] rewardsBatchList = new RewardsDataEntry[positionsBatch.size()];
         int dataEntryIndex = 0;
-        for (Map.Entry<Integer, BigInteger> entry : positionsMap.entrySet()) {
-            int id = entry.getKey();
-            BigInteger userDebt = entry.getValue();
+        for (int i = 0; i < positionsBatch.size(); i++) {
+            int id = positionsBatch.getId(i);
+            BigInteger userDebt = positionsBatch.getValue(i);
             Position position = PositionsDB.get(id);
 
             BigInteger loanShare = remainingBnusd.multiply(userDebt).divide(remainingSupply);
@@ -638,15 +836,25 @@ public class LoansImpl implements Loans {
             BigInteger sicxShare = sicxToSell.multiply(userDebt).divide(remainingSupply);
             sicxToSell = sicxToSell.subtract(sicxShare);
             position.setAssetPosition(SICX_SYMBOL, position.getAssetPosition(SICX_SYMBOL).subtract(sicxShare));
+            position.updateRatioBucket();
 
             remainingSupply = remainingSupply.subtract(userDebt);
-            changeLog.append("'" + id + "': {" +
-            "'d': " + loanShare.negate() +", " + 
-            "'c': " + sicxShare.negate() + "}, ");
+            if (packedLog) {
+                packedChangeLog.add(id, loanShare.negate(), sicxShare.negate());
+            } else {
+                changeLog.append("'" + id + "': {" +
+                "'d': " + loanShare.negate() +", " + 
+                "'c': " + sicxShare.negate() + "}, ");
+            }
         }
 
         Context.call(rewards.get(), "updateBatchRewardsData", "Loans", oldTotalDebt, rewardsBatchList);
 
+        if (packedLog) {
+            PackedRebalance(Context.getCaller(), BNUSD_SYMBOL, packedChangeLog.toBytes(), totalBatchDebt);
+            return;
+        }
+
         changeLog.delete(changeLog.length()-2, changeLog.length()).append("}");
 
         Rebalance(Context.getCaller(), BNUSD_SYMBOL, changeLog.toString(), totalBatchDebt);
@@ -659,25 +867,18 @@ public class LoansImpl implements Loans {
 
         Asset asset = AssetDB.getAsset(SICX_SYMBOL);
         BigInteger oldTotalDebt = totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
-        int batchSize = redeemBatch.get();
         LinkedListDB borrowers = AssetDB.getAsset(BNUSD_SYMBOL).getBorrowers();
 
-        int nodeId = borrowers.getHeadId();
-        BigInteger totalBatchDebt = BigInteger.ZERO;
-        Map<Integer, BigInteger> positionsMap = new HashMap<>();
-
-        int iterations = Math.min(batchSize, borrowers.size());
-        for (int i = 0; i < iterations; i++) {
-            BigInteger debt = borrowers.nodeValue(nodeId);
-            positionsMap.put(nodeId, debt);
-            totalBatchDebt = totalBatchDebt.add(debt);
-            borrowers.headToTail();
-            nodeId = borrowers.getHeadId();
+        BigInteger retirePercent = maxRetirePercent.get();
+        BigInteger requiredDebt = BigInteger.ZERO;
+        if (retirePercent.signum() > 0) {
+            requiredDebt = _total_tokens_required.multiply(POINTS).divide(retirePercent);
         }
 
-        borrowers.serialize();
+        OrderedBatch positionsBatch = collectRedeemBatches(borrowers, requiredDebt);
+        BigInteger totalBatchDebt = positionsBatch.getTotal();
 
-        BigInteger bnusdToSell = maxRetirePercent.get().multiply(totalBatchDebt).divide(POINTS);
+        BigInteger bnusdToSell = retirePercent.multiply(totalBatchDebt).divide(POINTS);
         bnusdToSell = bnusdToSell.min(_total_tokens_required);
 
         Address bnusdAddress = AssetDB.getAsset(BNUSD_SYMBOL).getAssetAddress();
@@ -697,12 +898,14 @@ public class LoansImpl implements Loans {
         BigInteger remainingSupply = totalBatchDebt;
         BigInteger remainingBnusd = bnusdToSell;
 
+        boolean packedLog = packedRebalanceLog.getOrDefault(false);
         StringBuilder changeLog = new StringBuilder("{");
-        RewardsDataEntry[] rewardsBatchList = new RewardsDataEntry[iterations];
+        RebalanceChangeLog packedChangeLog = new RebalanceChangeLog(positionsBatch.size());
+        RewardsDataEntry[] rewardsBatchList = new RewardsDataEntry[positionsBatch.size()];
         int dataEntryIndex = 0;
-        for (Map.Entry<Integer, BigInteger> entry : positionsMap.entrySet()) {
-            int id = entry.getKey();
-            BigInteger userDebt = entry.getValue();
+        for (int i = 0; i < positionsBatch.size(); i++) {
+            int id = positionsBatch.getId(i);
+            BigInteger userDebt = positionsBatch.getValue(i);
             Position position = PositionsDB.get(id);
             BigInteger loanShare = remainingBnusd.multiply(userDebt).divide(remainingSupply);
             remainingBnusd = remainingBnusd.subtract(loanShare);
@@ -717,19 +920,64 @@ public class LoansImpl implements Loans {
             BigInteger sicxShare = remainingSicx.multiply(userDebt).divide(remainingSupply);
             remainingSicx = remainingSicx.subtract(sicxShare);
             position.setAssetPosition(SICX_SYMBOL, position.getAssetPosition(SICX_SYMBOL).add(sicxShare));
+            position.updateRatioBucket();
 
             remainingSupply = remainingSupply.subtract(userDebt);
-            changeLog.append("'" + id + "': {" +
-                "'d': " + loanShare +", " + 
-                "'c': " + sicxShare + "}, ");
+            if (packedLog) {
+                packedChangeLog.add(id, loanShare, sicxShare);
+            } else {
+                changeLog.append("'" + id + "': {" +
+                    "'d': " + loanShare +", " + 
+                    "'c': " + sicxShare + "}, ");
+            }
         }
 
         Context.call(rewards.get(), "updateBatchRewardsData", "Loans", oldTotalDebt, rewardsBatchList);
 
+        if (packedLog) {
+            PackedRebalance(Context.getCaller(), BNUSD_SYMBOL, packedChangeLog.toBytes(), totalBatchDebt);
+            return;
+        }
+
         changeLog.delete(changeLog.length()-2, changeLog.length()).append("}");
         Rebalance(Context.getCaller(), BNUSD_SYMBOL, changeLog.toString(), totalBatchDebt);
     }
 
+    /**
+     * Collects borrowers from the head of the borrowers list in sub-batches of the redeem batch size, up to the max
+     * redeem batches, and moves them to the tail in a single rotation. No further sub-batch is started once the
+     * collected debt covers the required debt.
+     *
+     * @param borrowers    Borrowers list of the rebalanced asset
+     * @param requiredDebt Debt needed to rebalance the total tokens required
+     * @return Position ids and debts in list order
+     */
+    private OrderedBatch collectRedeemBatches(LinkedListDB borrowers, BigInteger requiredDebt) {
+        int batchSize = redeemBatch.get();
+        int batches = maxRedeemBatches.getOrDefault(1);
+        int remaining = borrowers.size();
+
+        LinkedListIterator iterator = borrowers.iterator();
+        OrderedBatch positionsBatch = new OrderedBatch((int) Math.min((long) batchSize * batches, remaining));
+        for (int batch = 0; batch < batches && remaining > 0; batch++) {
+            if (batch > 0 && positionsBatch.getTotal().compareTo(requiredDebt) >= 0) {
+                break;
+            }
+
+            int iterations = Math.min(batchSize, remaining);
+            for (int i = 0; i < iterations; i++) {
+                int nodeId = iterator.next();
+                positionsBatch.add(nodeId, iterator.getValue());
+            }
+            remaining -= iterations;
+        }
+
+        if (positionsBatch.size() > 0) {
+            borrowers.rotate(positionsBatch.size());
+        }
+        return positionsBatch;
+    }
+
     @External
     public void withdrawCollateral(BigInteger _value) {
         loansOn();
@@ -741,17 +989,16 @@ public class LoansImpl implements Loans {
         boolean newDay = checkForNewDay();
         BigInteger day = _getDay();
         checkDistributions(day, newDay);
+        PriceContext prices = new PriceContext();
         Position position = PositionsDB.getPosition(from);
+        position.setAssetRegistry(prices.getAssets());
 
         Context.require(position.getAssetPosition(SICX_SYMBOL).compareTo(_value) >= 0, TAG + ": Position holds less " +
                 "collateral than the requested withdrawal.");
-        BigInteger assetValue = position.totalDebt(-1, false);
+        BigInteger assetValue = position.totalDebt(-1, false, prices);
         BigInteger remainingSicx = position.getAssetPosition(SICX_SYMBOL).subtract(_value);
 
-        Address sicxAddress = AssetDB.getAsset(SICX_SYMBOL).getAssetAddress();
-        Token sicxContract = new Token(sicxAddress);
-
-        BigInteger remainingCollateral = remainingSicx.multiply(sicxContract.priceInLoop()).divide(EXA);
+        BigInteger remainingCollateral = remainingSicx.multiply(prices.priceInLoop(SICX_SYMBOL)).divide(EXA);
 
         BigInteger lockingValue = lockingRatio.get().multiply(assetValue).divide(POINTS);
         Context.require(remainingCollateral.compareTo(lockingValue) >= 0,
@@ -762,6 +1009,7 @@ public class LoansImpl implements Loans {
         );
 
         position.setAssetPosition(SICX_SYMBOL, remainingSicx);
+        position.updateRatioBucket();
         transferToken(SICX_SYMBOL, from, _value, "Collateral withdrawn.", new byte[0]);
     }
 
@@ -770,38 +1018,117 @@ public class LoansImpl implements Loans {
         loansOn();
 
         Context.require(PositionsDB.hasPosition(_owner), TAG + ": This address does not have a position on Balanced.");
+        PriceContext prices = new PriceContext();
+        BigInteger oldTotalDebt = totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+        List<RewardsDataEntry> rewardsEntries = new ArrayList<>();
+        List<String> liquidatedAssets = new ArrayList<>();
+        BigInteger reward = liquidatePosition(_owner, prices, oldTotalDebt, rewardsEntries, liquidatedAssets);
+        if (reward == null) {
+            return;
+        }
+
+        for (RewardsDataEntry entry : rewardsEntries) {
+            Context.call(rewards.get(), "updateRewardsData", "Loans", oldTotalDebt, entry._user, entry._balance);
+        }
+
+        transferToken(SICX_SYMBOL, Context.getCaller(), reward, "Liquidation reward of", new byte[0]);
+        checkForDeadMarkets(liquidatedAssets, prices);
+    }
+
+    @External
+    public void liquidateBatch(Address[] _owners) {
+        loansOn();
+        Context.require(_owners.length <= MAX_LIQUIDATION_BATCH, TAG + ": At most " + MAX_LIQUIDATION_BATCH +
+                " positions can be liquidated at once.");
+
+        PriceContext prices = new PriceContext();
+        BigInteger oldTotalDebt = totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+        List<RewardsDataEntry> rewardsEntries = new ArrayList<>();
+        List<String> liquidatedAssets = new ArrayList<>();
+        BigInteger totalReward = BigInteger.ZERO;
+        boolean liquidated = false;
+        for (Address owner : _owners) {
+            if (!PositionsDB.hasPosition(owner)) {
+                continue;
+            }
+
+            BigInteger reward = liquidatePosition(owner, prices, oldTotalDebt, rewardsEntries, liquidatedAssets);
+            if (reward != null) {
+                totalReward = totalReward.add(reward);
+                liquidated = true;
+            }
+        }
+
+        if (!liquidated) {
+            return;
+        }
+
+        if (!rewardsEntries.isEmpty()) {
+            RewardsDataEntry[] rewardsBatchList = new RewardsDataEntry[rewardsEntries.size()];
+            for (int i = 0; i < rewardsBatchList.length; i++) {
+                rewardsBatchList[i] = rewardsEntries.get(i);
+            }
+            Context.call(rewards.get(), "updateBatchRewardsData", "Loans", oldTotalDebt, rewardsBatchList);
+        }
+
+        transferToken(SICX_SYMBOL, Context.getCaller(), totalReward, "Liquidation reward of", new byte[0]);
+        checkForDeadMarkets(liquidatedAssets, prices);
+    }
+
+    private void checkForDeadMarkets(List<String> symbols, PriceContext prices) {
+        for (String symbol : symbols) {
+            prices.getAssets().getAsset(symbol).checkForDeadMarket(prices);
+        }
+    }
+
+    /**
+     * Liquidates a position if its standing is LIQUIDATE. The rewards data updates for its debts are collected in
+     * rewardsEntries, the liquidation reward is left to the caller to transfer.
+     *
+     * @param _owner           Owner of the position
+     * @param prices           Prices already fetched in the current transaction
+     * @param oldTotalDebt     Total bnUSD debt before the transaction
+     * @param rewardsEntries   List to collect the rewards data updates in
+     * @param liquidatedAssets List to collect the symbols of the assets whose bad debt changed in
+     * @return sICX reward for the liquidator, null if the position was not liquidated
+     */
+    private BigInteger liquidatePosition(Address _owner, PriceContext prices, BigInteger oldTotalDebt,
+                                         List<RewardsDataEntry> rewardsEntries, List<String> liquidatedAssets) {
+        AssetRegistry assets = prices.getAssets();
         Position position = PositionsDB.getPosition(_owner);
-        Standings standing;
-        boolean isBeforeContinuousRewardDay = isBeforeContinuousRewardDay();
+        position.setAssetRegistry(assets);
+        Standing standing;
+        boolean isBeforeContinuousRewardDay = prices.isBeforeContinuousRewardDay(-1);
         if (isBeforeContinuousRewardDay) {
-            standing = position.updateStanding(-1);
+            standing = position.updateStanding(-1, prices);
         } else {
-            standing = position.getStanding(-1, false).standing;
+            standing = position.getStanding(-1, false, prices);
         }
 
-        if (standing != Standings.LIQUIDATE) {
-            return;
+        if (standing.standing != Standings.LIQUIDATE) {
+            return null;
         }
 
         BigInteger collateral = position.getAssetPosition(SICX_SYMBOL);
         BigInteger reward = collateral.multiply(liquidationReward.get()).divide(POINTS);
         BigInteger forPool = collateral.subtract(reward);
-        BigInteger totalDebt = position.totalDebt(-1, false);
-        BigInteger oldTotalDebt = totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+        BigInteger totalDebt = standing.totalDebt;
 
-        int assetSymbolsCount = AssetDB.assetSymbols.size();
-        for (int i = 0; i < assetSymbolsCount; i++) {
-            String symbol = AssetDB.assetSymbols.get(i);
-            Asset asset = AssetDB.getAsset(symbol);
-            Address assetAddress = asset.getAssetAddress();
-            Token assetContract = new Token(assetAddress);
+        for (String symbol : assets.getSymbols()) {
             BigInteger debt = position.getAssetPosition(symbol);
-            if (!asset.isCollateral() && asset.isActive() && debt.compareTo(BigInteger.ZERO) > 0) {
-                Context.call(rewards.get(), "updateRewardsData", "Loans", oldTotalDebt, _owner, debt);
+            if (!assets.isCollateral(symbol) && assets.isActive(symbol) && debt.compareTo(BigInteger.ZERO) > 0) {
+                Asset asset = assets.getAsset(symbol);
+                RewardsDataEntry userEntry = new RewardsDataEntry();
+                userEntry._user = _owner;
+                userEntry._balance = debt;
+                rewardsEntries.add(userEntry);
+                if (!liquidatedAssets.contains(symbol)) {
+                    liquidatedAssets.add(symbol);
+                }
 
                 BigInteger badDebt = asset.getBadDebt();
                 asset.setBadDebt(badDebt.add(debt));
-                BigInteger symbolDebt = debt.multiply(assetContract.priceInLoop()).divide(EXA);
+                BigInteger symbolDebt = debt.multiply(prices.priceInLoop(symbol)).divide(EXA);
                 BigInteger share = forPool.multiply(symbolDebt.divide(totalDebt));
                 totalDebt = totalDebt.subtract(symbolDebt);
                 forPool = forPool.subtract(share);
@@ -811,8 +1138,7 @@ public class LoansImpl implements Loans {
         }
 
         position.setAssetPosition(SICX_SYMBOL, null);
-        transferToken(SICX_SYMBOL, Context.getCaller(), reward, "Liquidation reward of", new byte[0]);
-        AssetDB.updateDeadMarkets();
+        position.updateRatioBucket();
 
         if (isBeforeContinuousRewardDay) {
             PositionsDB.removeNonZero(position.getId());
@@ -820,18 +1146,14 @@ public class LoansImpl implements Loans {
 
         String logMessage = collateral + " liquidated from " + _owner;
         Liquidate(_owner, collateral, logMessage);
+        return reward;
     }
 
-    private BigInteger badDebtRedeem(Address from, Asset asset, BigInteger badDebtValue) {
-        Address assetAddress = asset.getAssetAddress();
-        Token assetContract = new Token(assetAddress);
-
-        BigInteger price = assetContract.priceInLoop();
+    private BigInteger badDebtRedeem(Address from, Asset asset, BigInteger badDebtValue, PriceContext prices) {
+        BigInteger price = prices.priceInLoop(asset.getAssetAddress());
         Asset sicx = AssetDB.getAsset(SICX_SYMBOL);
-        Address sicxAddress = sicx.getAssetAddress();
-        Token sicxContract = new Token(sicxAddress);
 
-        BigInteger sicxRate = sicxContract.priceInLoop();
+        BigInteger sicxRate = prices.priceInLoop(SICX_SYMBOL);
         BigInteger inPool = asset.getLiquidationPool();
         BigInteger badDebt = asset.getBadDebt().subtract(badDebtValue);
 
@@ -858,37 +1180,40 @@ public class LoansImpl implements Loans {
         return inPool.add(received);
     }
 
-    private void originateLoan(String assetToBorrow, BigInteger amount, Address from) {
-        Asset asset = AssetDB.getAsset(assetToBorrow);
-        Context.require(!asset.checkForDeadMarket(), TAG + ": No new loans of " + assetToBorrow + " can be originated" +
+    private void originateLoan(String assetToBorrow, BigInteger amount, Address from, PriceContext prices) {
+        AssetRegistry assets = prices.getAssets();
+        Asset asset = assets.getAsset(assetToBorrow);
+        Context.require(!asset.getDeadMarket(prices), TAG + ": No new loans of " + assetToBorrow + " can be originated" +
                 " since it is in a dead market state.");
-        Context.require(!asset.isCollateral(), TAG + ": Loans of collateral assets are not allowed.");
-        Context.require(asset.isActive(), TAG + ": Loans of inactive assets are not allowed.");
+        Context.require(!assets.isCollateral(assetToBorrow), TAG + ": Loans of collateral assets are not allowed.");
+        Context.require(assets.isActive(assetToBorrow), TAG + ": Loans of inactive assets are not allowed.");
 
         Position position = PositionsDB.getPosition(from);
+        position.setAssetRegistry(assets);
         BigInteger oldTotalDebt = totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
 
-        BigInteger collateral = position.totalCollateral(-1);
+        Standing totals = position.getTotals(-1, false, prices);
+        BigInteger collateral = totals.collateral;
         BigInteger maxDebtValue = POINTS.multiply(collateral).divide(lockingRatio.get());
         BigInteger fee = originationFee.get().multiply(amount).divide(POINTS);
 
-        Address borrowAssetAddress = asset.getAssetAddress();
+        Address borrowAssetAddress = assets.getAddress(assetToBorrow);
         Token borrowAsset = new Token(borrowAssetAddress);
 
         BigInteger newDebt = amount.add(fee);
-        BigInteger newDebtValue = borrowAsset.priceInLoop().multiply(newDebt).divide(EXA);
+        BigInteger newDebtValue = prices.priceInLoop(assetToBorrow).multiply(newDebt).divide(EXA);
         BigInteger holdings = position.getAssetPosition(assetToBorrow);
         if (holdings.equals(BigInteger.ZERO)) {
-            Token bnusd = new Token(AssetDB.getAsset(BNUSD_SYMBOL).getAssetAddress());
-            BigInteger dollarValue = newDebtValue.multiply(EXA).divide(bnusd.priceInLoop());
+            BigInteger dollarValue = newDebtValue.multiply(EXA).divide(prices.priceInLoop(BNUSD_SYMBOL));
             Context.require(dollarValue.compareTo(newLoanMinimum.get()) >= 0, TAG + ": The initial loan of any " +
                     "asset must have a minimum value of " + newLoanMinimum.get().divide(EXA) + " dollars.");
-            if (!AssetDB.getAsset(assetToBorrow).getBorrowers().contains(position.getId())) {
-                AssetDB.getAsset(assetToBorrow).getBorrowers().append(newDebt, position.getId());
+            LinkedListDB borrowers = asset.getBorrowers();
+            if (!borrowers.contains(position.getId())) {
+                borrowers.append(newDebt, position.getId());
             }
         }
 
-        BigInteger totalDebt = position.totalDebt(-1, false);
+        BigInteger totalDebt = totals.totalDebt;
         Context.require(totalDebt.add(newDebtValue).compareTo(maxDebtValue) <= 0,
                 TAG + ": " + collateral + " collateral is insufficient" +
                         " to originate a loan of " + amount + " " + assetToBorrow +
@@ -906,6 +1231,7 @@ public class LoansImpl implements Loans {
         Context.call(rewards.get(), "updateRewardsData", "Loans", oldTotalDebt, from, holdings);
 
         position.setAssetPosition(assetToBorrow, holdings.add(newDebt));
+        position.updateRatioBucket();
         borrowAsset.mintTo(from, amount);
 
         String logMessage = "Loan of " + amount + " " + assetToBorrow + " from Balanced.";
@@ -1103,6 +1429,34 @@ public class LoansImpl implements Loans {
         redeemBatch.set(_value);
     }
 
+    @External
+    public void setPackedRebalanceLog(boolean _value) {
+        only(admin);
+        packedRebalanceLog.set(_value);
+    }
+
+    @External
+    public void setMaxRedeemBatches(int _value) {
+        only(admin);
+        Context.require(_value > 0, TAG + ": Max redeem batches must be positive.");
+        maxRedeemBatches.set(_value);
+    }
+
+    @External
+    public void setMaxDistributeCalls(int _value) {
+        only(admin);
+        Context.require(_value > 0 && _value <= MAX_DISTRIBUTE_CALLS, TAG + ": Max distribute calls must be " +
+                "between 1 and " + MAX_DISTRIBUTE_CALLS + ".");
+        maxDistributeCalls.set(_value);
+    }
+
+    @External
+    public void setPrecomputeBudget(int _value) {
+        only(admin);
+        Context.require(_value >= 0, TAG + ": Precompute step budget can not be negative.");
+        precomputeBudget.set(_value);
+    }
+
     @External(readonly = true)
     public Map<String, Object> getParameters() {
         Map<String, Object> parameters = new HashMap<>();
@@ -1124,6 +1478,11 @@ public class LoansImpl implements Loans {
         parameters.put("max div debt length", maxDebtsListLength.get());
         parameters.put("time offset", timeOffset.getOrDefault(BigInteger.ZERO));
         parameters.put("redeem batch size", redeemBatch.get());
+        parameters.put("max redeem batches", maxRedeemBatches.getOrDefault(1));
+        parameters.put("max distribute calls", maxDistributeCalls.getOrDefault(1));
+        parameters.put("packed rebalance log", packedRebalanceLog.getOrDefault(false));
+        parameters.put("precompute step budget", precomputeBudget.getOrDefault(0));
+        parameters.put("precompute steps per position", precomputeCost.getOrDefault(0));
         parameters.put("retire percent max", maxRetirePercent.get());
 
         return parameters;
@@ -1174,6 +1533,10 @@ public class LoansImpl implements Loans {
     public void Rebalance(Address account, String symbol, String change_in_pos, BigInteger total_batch_debt) {
     }
 
+    @EventLog(indexed = 2)
+    public void PackedRebalance(Address account, String symbol, byte[] change_in_pos, BigInteger total_batch_debt) {
+    }
+
     @EventLog(indexed = 2)
     public void PositionStanding(Address address, String standing, BigInteger total_collateral, BigInteger total_debt) {
     }
@@ -1182,4 +1545,8 @@ public class LoansImpl implements Loans {
     public void Snapshot(BigInteger _id) {
     }
 
+    @EventLog
+    public void PositionsMigrated(BigInteger start_id, BigInteger end_id, BigInteger cursor) {
+    }
+
 }
@@ -54,9 +54,16 @@ public class LoansVariables {
     private static final String MIN_MINING_DEBT = "min_mining_debt";
     private static final String MAX_DEBTS_LIST_LENGTH = "max_debts_list_length";
     private static final String TOTAL_DEBT = "totalDebts";
+    private static final String TOTAL_COLLATERAL = "totalCollateral";
 
 
     private static final String REDEEM_BATCH_SIZE = "redeem_batch_size";
+    private static final String MAX_REDEEM_BATCHES = "max_redeem_batches";
+    private static final String MAX_DISTRIBUTE_CALLS = "max_distribute_calls";
+    private static final String PACKED_REBALANCE_LOG = "packed_rebalance_log";
+    private static final String MIGRATION_CURSOR = "migration_cursor";
+    private static final String PRECOMPUTE_BUDGET = "precompute_budget";
+    private static final String PRECOMPUTE_COST = "precompute_cost";
     private static final String MAX_RETIRE_PERCENT = "max_retire_percent";
     private static final String CONTINUOUS_REWARD_DAY = "continuous_reward_day";
 
@@ -75,6 +82,8 @@ public class LoansVariables {
     static final VarDB<Address> staking = Context.newVarDB(STAKING, Address.class);
 
     public static final VarDB<Integer> snapBatchSize = Context.newVarDB(SNAP_BATCH_SIZE, Integer.class);
+    public static final VarDB<Integer> precomputeBudget = Context.newVarDB(PRECOMPUTE_BUDGET, Integer.class);
+    public static final VarDB<Integer> precomputeCost = Context.newVarDB(PRECOMPUTE_COST, Integer.class);
 
     static final VarDB<Boolean> rewardsDone = Context.newVarDB(REWARDS_DONE, Boolean.class);
     static final VarDB<Boolean> dividendsDone = Context.newVarDB(DIVIDENDS_DONE, Boolean.class);
@@ -85,6 +94,8 @@ public class LoansVariables {
     public static final VarDB<BigInteger> miningRatio = Context.newVarDB(MINING_RATIO, BigInteger.class);
     public static final VarDB<BigInteger> lockingRatio = Context.newVarDB(LOCKING_RATIO, BigInteger.class);
     public static final DictDB<String, BigInteger> totalDebts = Context.newDictDB(TOTAL_DEBT, BigInteger.class);
+    public static final DictDB<String, BigInteger> totalCollateral = Context.newDictDB(TOTAL_COLLATERAL,
+            BigInteger.class);
 
 
     public static final VarDB<BigInteger> liquidationRatio = Context.newVarDB(LIQUIDATION_RATIO, BigInteger.class);
@@ -96,6 +107,10 @@ public class LoansVariables {
     public static final VarDB<BigInteger> minMiningDebt = Context.newVarDB(MIN_MINING_DEBT, BigInteger.class);
     static final VarDB<Integer> maxDebtsListLength = Context.newVarDB(MAX_DEBTS_LIST_LENGTH, Integer.class);
     static final VarDB<Integer> redeemBatch = Context.newVarDB(REDEEM_BATCH_SIZE, Integer.class);
+    static final VarDB<Integer> maxRedeemBatches = Context.newVarDB(MAX_REDEEM_BATCHES, Integer.class);
+    static final VarDB<Integer> maxDistributeCalls = Context.newVarDB(MAX_DISTRIBUTE_CALLS, Integer.class);
+    static final VarDB<Boolean> packedRebalanceLog = Context.newVarDB(PACKED_REBALANCE_LOG, Boolean.class);
+    public static final VarDB<Integer> migrationCursor = Context.newVarDB(MIGRATION_CURSOR, Integer.class);
     static final VarDB<BigInteger> maxRetirePercent = Context.newVarDB(MAX_RETIRE_PERCENT, BigInteger.class);
 
     static final VarDB<Address> expectedToken = Context.newVarDB(EXPECTED_TOKEN, Address.class);
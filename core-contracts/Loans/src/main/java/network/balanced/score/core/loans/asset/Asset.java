@@ -17,6 +17,7 @@
 package network.balanced.score.core.loans.asset;
 
 import network.balanced.score.core.loans.linkedlist.LinkedListDB;
+import network.balanced.score.core.loans.utils.PriceContext;
 import network.balanced.score.core.loans.utils.Token;
 import score.Address;
 import score.BranchDB;
@@ -27,6 +28,7 @@ import scorex.util.HashMap;
 import java.math.BigInteger;
 import java.util.Map;
 
+import static network.balanced.score.core.loans.utils.LoansConstants.DEAD_MARKET_CHECK_INTERVAL;
 import static network.balanced.score.core.loans.utils.LoansConstants.SICX_SYMBOL;
 import static network.balanced.score.core.loans.LoansImpl.call;
 
@@ -42,6 +44,8 @@ public class Asset {
     private final BranchDB<String, VarDB<Boolean>> isCollateral = Context.newBranchDB("is_collateral", Boolean.class);
     private final BranchDB<String, VarDB<Boolean>> active = Context.newBranchDB("active", Boolean.class);
     private final BranchDB<String, VarDB<Boolean>> deadMarket = Context.newBranchDB("dead_market", Boolean.class);
+    private final BranchDB<String, VarDB<BigInteger>> deadMarketCheckedAt = Context.newBranchDB(
+            "dead_market_checked_at", BigInteger.class);
 
     private final String dbKey;
 
@@ -110,26 +114,40 @@ public class Asset {
      * the point at which total debt equals the minimum value of collateral that could be backing it.
      */
     public boolean checkForDeadMarket() {
+        return checkForDeadMarket(new PriceContext());
+    }
+
+    public boolean checkForDeadMarket(PriceContext prices) {
         if (isCollateral() || !isActive()) {
             return false;
         }
 
+        // A forced check inside the interval leaves the timestamp alone, so the next periodic check is not delayed
+        BigInteger now = BigInteger.valueOf(Context.getBlockTimestamp());
+        if (!isRecentlyChecked(now)) {
+            deadMarketCheckedAt.at(dbKey).set(now);
+        }
+
         BigInteger badDebt = getBadDebt();
+        if (badDebt.signum() == 0) {
+            // Without bad debt the net bad debt can not exceed half of the outstanding supply
+            return setDeadMarket(false);
+        }
 
         Address assetAddress = this.assetAddress.at(dbKey).get();
         Token assetContract = new Token(assetAddress);
 
         BigInteger outStanding = assetContract.totalSupply().subtract(badDebt);
 
-        Address sicxAddress = AssetDB.getAsset(SICX_SYMBOL).getAssetAddress();
-        Token sicxContract = new Token(sicxAddress);
-
         // [Multi-collateral] Here it assumes every token should be denominated in terms of sicx.
         BigInteger poolValue =
-                getLiquidationPool().multiply(assetContract.priceInLoop()).divide(sicxContract.priceInLoop());
+                getLiquidationPool().multiply(prices.priceInLoop(assetAddress)).divide(prices.priceInLoop(SICX_SYMBOL));
         BigInteger netBadDebt = badDebt.subtract(poolValue);
-        Boolean isDead = netBadDebt.compareTo(outStanding.divide(BigInteger.TWO)) > 0;
+        boolean isDead = netBadDebt.compareTo(outStanding.divide(BigInteger.TWO)) > 0;
+        return setDeadMarket(isDead);
+    }
 
+    private boolean setDeadMarket(boolean isDead) {
         VarDB<Boolean> deadMarket = this.deadMarket.at(dbKey);
         if (deadMarket.getOrDefault(false) != isDead) {
             deadMarket.set(isDead);
@@ -137,6 +155,27 @@ public class Asset {
         return isDead;
     }
 
+    /**
+     * Returns the dead market flag, evaluating it again only if the last evaluation is older than the dead market
+     * check interval. Changes of the bad debt or the liquidation pool have to be followed by checkForDeadMarket.
+     */
+    public boolean getDeadMarket(PriceContext prices) {
+        if (isCollateral() || !isActive()) {
+            return false;
+        }
+
+        if (isRecentlyChecked(BigInteger.valueOf(Context.getBlockTimestamp()))) {
+            return isDeadMarket();
+        }
+
+        return checkForDeadMarket(prices);
+    }
+
+    private boolean isRecentlyChecked(BigInteger now) {
+        BigInteger checkedAt = deadMarketCheckedAt.at(dbKey).get();
+        return checkedAt != null && now.subtract(checkedAt).compareTo(DEAD_MARKET_CHECK_INTERVAL) < 0;
+    }
+
     public LinkedListDB getBorrowers() {
         return new LinkedListDB("borrowers", dbKey);
     }
@@ -16,11 +16,13 @@
 
 package network.balanced.score.core.loans.asset;
 
+import network.balanced.score.core.loans.utils.PriceContext;
 import network.balanced.score.core.loans.utils.Token;
 import score.Address;
 import score.ArrayDB;
 import score.Context;
 import score.DictDB;
+import score.VarDB;
 import scorex.util.ArrayList;
 import scorex.util.HashMap;
 
@@ -28,6 +30,7 @@ import java.math.BigInteger;
 import java.util.List;
 import java.util.Map;
 
+import static network.balanced.score.core.loans.utils.LoansConstants.DEAD_MARKET_CHECK_INTERVAL;
 import static network.balanced.score.lib.utils.ArrayDBUtils.arrayDbContains;
 import static network.balanced.score.lib.utils.Constants.EXA;
 
@@ -41,6 +44,8 @@ public class AssetDB {
     public static ArrayDB<String> activeCollateral = Context.newArrayDB("active_collateral_list", String.class);
     private static final ArrayDB<String> collateralList = Context.newArrayDB("collateral", String.class);
     public static final DictDB<String, String> symbolMap = Context.newDictDB("symbol|address", String.class);
+    private static final VarDB<BigInteger> deadMarketsRefreshedAt = Context.newVarDB("dead_markets_refreshed_at",
+            BigInteger.class);
 
     public static int size() {
         return assetAddresses.size();
@@ -48,6 +53,10 @@ public class AssetDB {
 
     public static Asset getAsset(String symbol) {
         Context.require(arrayDbContains(assetSymbols, symbol), symbol + "is not a supported asset.");
+        return getAssetBySymbol(symbol);
+    }
+
+    static Asset getAssetBySymbol(String symbol) {
         String assetAddress = symbolMap.get(symbol);
         return new Asset(ASSET_DB_PREFIX + "|" + assetAddress);
     }
@@ -63,21 +72,19 @@ public class AssetDB {
     }
 
     public static Map<String, Map<String, Object>> getActiveAssets() {
-        int totalActiveAssetsCount = activeAssets.size();
+        AssetRegistry registry = new AssetRegistry();
         Map<String, Map<String, Object>> assets = new HashMap<>();
-        for (int i = 0; i < totalActiveAssetsCount; i++) {
-            String symbol = activeAssets.get(i);
-            assets.put(symbol, getAsset(symbol).toMap());
+        for (String symbol : registry.getActiveAssets()) {
+            assets.put(symbol, registry.getAsset(symbol).toMap());
         }
         return assets;
     }
 
     public static Map<String, BigInteger> getAssetPrices() {
+        AssetRegistry registry = new AssetRegistry();
         Map<String, BigInteger> assets = new HashMap<>();
-        int totalActiveAssetsCount = activeAssets.size();
-        for (int i = 0; i < totalActiveAssetsCount; i++) {
-            String symbol = activeAssets.get(i);
-            Address assetAddress = getAsset(symbol).getAssetAddress();
+        for (String symbol : registry.getActiveAssets()) {
+            Address assetAddress = registry.getAddress(symbol);
             Token assetContract = new Token(assetAddress);
             BigInteger lastPrice = assetContract.lastPriceInLoop();
             assets.put(symbol, lastPrice);
@@ -117,11 +124,9 @@ public class AssetDB {
     public static List<String> getDeadMarkets() {
         List<String> deadAssets = new ArrayList<>();
 
-        int activeAssetsCount = activeAssets.size();
-        for (int i = 0; i < activeAssetsCount; i++) {
-            String symbol = activeAssets.get(i);
-            Asset asset = getAsset(symbol);
-            if (asset.isDeadMarket()) {
+        AssetRegistry registry = new AssetRegistry();
+        for (String symbol : registry.getActiveAssets()) {
+            if (registry.isDeadMarket(symbol)) {
                 deadAssets.add(symbol);
             }
         }
@@ -140,11 +145,9 @@ public class AssetDB {
 
     public static BigInteger getTotalCollateral() {
         BigInteger totalCollateral = BigInteger.ZERO;
-        int activeCollateralCount = activeCollateral.size();
-        for (int i = 0; i < activeCollateralCount; i++) {
-            String symbol = activeCollateral.get(i);
-            Asset asset = getAsset(symbol);
-            Address assetAddress = asset.getAssetAddress();
+        AssetRegistry registry = new AssetRegistry();
+        for (String symbol : registry.getActiveCollateral()) {
+            Address assetAddress = registry.getAddress(symbol);
             Token assetContract = new Token(assetAddress);
             BigInteger value = assetContract.balanceOf(Context.getAddress()).multiply(assetContract.lastPriceInLoop());
             totalCollateral = totalCollateral.add(value);
@@ -153,12 +156,22 @@ public class AssetDB {
         return totalCollateral.divide(EXA);
     }
 
-    public static void updateDeadMarkets() {
-        int activeAssetsCount = activeAssets.size();
-        for (int i = 0; i < activeAssetsCount; i++) {
-            String symbol = activeAssets.get(i);
-            Asset asset = getAsset(symbol);
-            asset.checkForDeadMarket();
+    /**
+     * Evaluates the dead market flags that are older than the dead market check interval. Assets are only scanned
+     * once per interval.
+     */
+    public static void refreshDeadMarkets() {
+        BigInteger now = BigInteger.valueOf(Context.getBlockTimestamp());
+        BigInteger refreshedAt = deadMarketsRefreshedAt.get();
+        if (refreshedAt != null && now.subtract(refreshedAt).compareTo(DEAD_MARKET_CHECK_INTERVAL) < 0) {
+            return;
+        }
+
+        deadMarketsRefreshedAt.set(now);
+        PriceContext prices = new PriceContext();
+        AssetRegistry registry = prices.getAssets();
+        for (String symbol : registry.getActiveAssets()) {
+            registry.getAsset(symbol).getDeadMarket(prices);
         }
     }
 
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.asset;
+
+import score.Address;
+import score.ArrayDB;
+import score.Context;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of the asset registry for the duration of a single transaction. The symbol lists and the address and
+ * flags of every asset are read from storage on first use and reused afterwards. An instance must only live in local
+ * variables, never in a field of the contract, and must not be used across a change to the asset registry.
+ */
+public class AssetRegistry {
+    private List<String> symbols;
+    private List<String> activeAssets;
+    private List<String> activeCollateral;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private static class Entry {
+        private final Asset asset;
+        private Address address;
+        private Boolean active;
+        private Boolean collateral;
+        private Boolean deadMarket;
+
+        private Entry(Asset asset) {
+            this.asset = asset;
+        }
+    }
+
+    public List<String> getSymbols() {
+        if (symbols == null) {
+            symbols = load(AssetDB.assetSymbols);
+        }
+
+        return symbols;
+    }
+
+    public List<String> getActiveAssets() {
+        if (activeAssets == null) {
+            activeAssets = load(AssetDB.activeAssets);
+        }
+
+        return activeAssets;
+    }
+
+    public List<String> getActiveCollateral() {
+        if (activeCollateral == null) {
+            activeCollateral = load(AssetDB.activeCollateral);
+        }
+
+        return activeCollateral;
+    }
+
+    public boolean isSupported(String symbol) {
+        return getSymbols().contains(symbol);
+    }
+
+    public boolean isActiveAsset(String symbol) {
+        return getActiveAssets().contains(symbol);
+    }
+
+    public Asset getAsset(String symbol) {
+        return getEntry(symbol).asset;
+    }
+
+    public Address getAddress(String symbol) {
+        Entry entry = getEntry(symbol);
+        if (entry.address == null) {
+            entry.address = entry.asset.getAssetAddress();
+        }
+
+        return entry.address;
+    }
+
+    public boolean isActive(String symbol) {
+        Entry entry = getEntry(symbol);
+        if (entry.active == null) {
+            entry.active = entry.asset.isActive();
+        }
+
+        return entry.active;
+    }
+
+    public boolean isCollateral(String symbol) {
+        Entry entry = getEntry(symbol);
+        if (entry.collateral == null) {
+            entry.collateral = entry.asset.isCollateral();
+        }
+
+        return entry.collateral;
+    }
+
+    /**
+     * Returns the stored dead market flag as of its first read in this transaction, without re-evaluating it.
+     */
+    public boolean isDeadMarket(String symbol) {
+        Entry entry = getEntry(symbol);
+        if (entry.deadMarket == null) {
+            entry.deadMarket = entry.asset.isDeadMarket();
+        }
+
+        return entry.deadMarket;
+    }
+
+    private Entry getEntry(String symbol) {
+        Entry entry = entries.get(symbol);
+        if (entry == null) {
+            Context.require(isSupported(symbol), symbol + "is not a supported asset.");
+            entry = new Entry(AssetDB.getAssetBySymbol(symbol));
+            entries.put(symbol, entry);
+        }
+
+        return entry;
+    }
+
+    private static List<String> load(ArrayDB<String> symbolList) {
+        int count = symbolList.size();
+        List<String> symbols = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            symbols.add(symbolList.get(i));
+        }
+
+        return symbols;
+    }
+}
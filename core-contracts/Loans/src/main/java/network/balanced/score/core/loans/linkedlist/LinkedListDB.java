@@ -18,14 +18,17 @@ package network.balanced.score.core.loans.linkedlist;
 
 import score.Context;
 import score.VarDB;
+import scorex.util.HashMap;
 
 import java.math.BigInteger;
+import java.util.Map;
 
 public class LinkedListDB {
     private final static String _NAME = "_LINKED_LISTDB";
     private final String name;
     private final String dbKey;
     private final VarDB<String> metadata;
+    private final Map<Integer, Node> nodes = new HashMap<>();
     private String dataString;
     private int headId;
     private int tailId;
@@ -76,11 +79,19 @@ public class LinkedListDB {
         return size;
     }
 
-    private Node getNode(int nodeId) {
+    Node getNode(int nodeId) {
+        Node node = nodes.get(nodeId);
+        if (node != null) {
+            return node;
+        }
+
         if (!dbKey.equals("")) {
-            return new Node(nodeId + name, dbKey);
+            node = new Node(nodeId + name, dbKey);
+        } else {
+            node = new Node(nodeId + name);
         }
-        return new Node(nodeId + name);
+        nodes.put(nodeId, node);
+        return node;
     }
 
     public BigInteger nodeValue(int id) {
@@ -162,6 +173,53 @@ public class LinkedListDB {
         serialize();
     }
 
+    /**
+     * Moves the first k nodes to the tail of the list, keeping their order. Only the boundary nodes are rewritten.
+     *
+     * @param k Number of nodes to move
+     */
+    public void rotate(int k) {
+        Context.require(size != 0, name + ": No data in the list");
+
+        k = k % size;
+        if (k == 0) {
+            return;
+        }
+
+        Node head = getNode(headId);
+        int lastId = headId;
+        Node last = head;
+        for (int i = 1; i < k; i++) {
+            lastId = last.getNext();
+            last = getNode(lastId);
+        }
+
+        int newHeadId = last.getNext();
+        Node newHead = getNode(newHeadId);
+        Node tail = getNode(tailId);
+
+        newHead.setPrev(0);
+        tail.setNext(headId);
+        head.setPrev(tailId);
+        last.setNext(0);
+
+        newHead.repack();
+        tail.repack();
+        head.repack();
+        last.repack();
+
+        tailId = lastId;
+        headId = newHeadId;
+        serialize();
+    }
+
+    /**
+     * Returns an iterator over the nodes from head to tail, which reads the node values without moving them.
+     */
+    public LinkedListIterator iterator() {
+        return new LinkedListIterator(this, headId);
+    }
+
     private void removeHead() {
         Node oldHead = getNode(headId);
 
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.linkedlist;
+
+import score.Context;
+
+import java.math.BigInteger;
+
+public class LinkedListIterator {
+    private final LinkedListDB list;
+    private int nextId;
+    private BigInteger value;
+
+    LinkedListIterator(LinkedListDB list, int startId) {
+        this.list = list;
+        this.nextId = startId;
+    }
+
+    public boolean hasNext() {
+        return nextId != 0;
+    }
+
+    /**
+     * Advances to the next node.
+     *
+     * @return Id of the node
+     */
+    public int next() {
+        Context.require(hasNext(), "LinkedListIterator: End of list reached");
+
+        int id = nextId;
+        Node node = list.getNode(id);
+        value = node.getValue();
+        nextId = node.getNext();
+        return id;
+    }
+
+    /**
+     * @return Value of the node last returned by next
+     */
+    public BigInteger getValue() {
+        return value;
+    }
+}
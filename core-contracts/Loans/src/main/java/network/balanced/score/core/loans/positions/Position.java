@@ -18,11 +18,12 @@ package network.balanced.score.core.loans.positions;
 
 import network.balanced.score.core.loans.LoansImpl;
 import network.balanced.score.core.loans.LoansVariables;
-import network.balanced.score.core.loans.asset.Asset;
-import network.balanced.score.core.loans.asset.AssetDB;
+import network.balanced.score.core.loans.asset.AssetRegistry;
+import network.balanced.score.core.loans.linkedlist.LinkedListDB;
+import network.balanced.score.core.loans.snapshot.Snapshot;
 import network.balanced.score.core.loans.snapshot.SnapshotDB;
+import network.balanced.score.core.loans.utils.PriceContext;
 import network.balanced.score.core.loans.utils.Standing;
-import network.balanced.score.core.loans.utils.Token;
 import score.*;
 import scorex.util.HashMap;
 
@@ -32,15 +33,18 @@ import java.util.Map;
 import static network.balanced.score.core.loans.LoansVariables.*;
 import static network.balanced.score.core.loans.utils.Checks.isBeforeContinuousRewardDay;
 import static network.balanced.score.core.loans.utils.LoansConstants.*;
-import static network.balanced.score.lib.utils.ArrayDBUtils.arrayDbContains;
 
 public class Position {
 
     static final String TAG = "BalancedLoansPositions";
+    private static final String DB_PREFIX = "position";
+    private static final BranchDB<String, VarDB<Address>> address = Context.newBranchDB("address", Address.class);
+
     private final BranchDB<String, VarDB<Integer>> id = Context.newBranchDB("id", Integer.class);
     private final BranchDB<String, VarDB<BigInteger>> created = Context.newBranchDB("created", BigInteger.class);
-    private final BranchDB<String, VarDB<Address>> address = Context.newBranchDB("address", Address.class);
     private final BranchDB<String, ArrayDB<Integer>> snaps = Context.newBranchDB("snaps", Integer.class);
+    private final BranchDB<String, DictDB<Integer, Boolean>> snapDays = Context.newBranchDB("snap_days",
+            Boolean.class);
     private final BranchDB<String, BranchDB<Integer, DictDB<String, BigInteger>>> assets = Context.newBranchDB("assets",
             BigInteger.class);
     private final BranchDB<String, DictDB<String, Boolean>> dataMigrationStatus = Context.newBranchDB("data_migration " +
@@ -49,11 +53,46 @@ public class Position {
             "loan_balance", BigInteger.class);
     private final BranchDB<String, DictDB<String, BigInteger>> collateralPosition = Context.newBranchDB("collateral_balance"
             , BigInteger.class);
+    private final BranchDB<String, VarDB<byte[]>> packedBalances = Context.newBranchDB("packed_balances",
+            byte[].class);
+    private final BranchDB<String, VarDB<Boolean>> collateralCounted = Context.newBranchDB("collateral_counted",
+            Boolean.class);
 
     private final String dbKey;
+    // Decoded packed record, cached for the lifetime of the instance. PositionsDB hands out one instance per id and
+    // transaction, so the cache is never stale within the transaction.
+    private PositionBalances balances;
+    private AssetRegistry assetRegistry;
+
+    Position(int id) {
+        this.dbKey = getDbKey(id);
+    }
+
+    private static String getDbKey(int id) {
+        return DB_PREFIX + "|" + id;
+    }
+
+    /**
+     * Reads the owner of a position straight from the position storage, without validating the id or building the
+     * position.
+     */
+    public static Address getAddress(int id) {
+        return address.at(getDbKey(id)).get();
+    }
+
+    /**
+     * Shares the asset registry snapshot of the current transaction with this position.
+     */
+    public void setAssetRegistry(AssetRegistry assetRegistry) {
+        this.assetRegistry = assetRegistry;
+    }
+
+    private AssetRegistry getAssetRegistry() {
+        if (assetRegistry == null) {
+            assetRegistry = new AssetRegistry();
+        }
 
-    Position(String dbKey) {
-        this.dbKey = dbKey;
+        return assetRegistry;
     }
 
     void setId(Integer id) {
@@ -73,7 +112,7 @@ public class Position {
     }
 
     public void setAddress(Address address) {
-        this.address.at(dbKey).set(address);
+        Position.address.at(dbKey).set(address);
     }
 
     public Address getAddress() {
@@ -82,6 +121,7 @@ public class Position {
 
     void addSnaps(Integer value) {
         snaps.at(dbKey).add(value);
+        snapDays.at(dbKey).set(value, true);
     }
 
     Integer getSnaps(Integer index) {
@@ -100,42 +140,167 @@ public class Position {
         assets.at(dbKey).at(snapID).set(symbol, value);
     }
 
+    /**
+     * Returns the continuous rewards balances of the position, read from its packed record. Positions without a
+     * packed record are read from the legacy per symbol entries and are migrated on their next write.
+     */
+    private PositionBalances getBalances() {
+        if (balances != null) {
+            return balances;
+        }
+
+        byte[] record = packedBalances.at(dbKey).get();
+        if (record != null) {
+            balances = PositionBalances.fromBytes(record);
+            return balances;
+        }
+
+        balances = new PositionBalances();
+        for (String symbol : getAssetRegistry().getSymbols()) {
+            if (!dataMigrationStatus.at(dbKey).getOrDefault(symbol, false)) {
+                continue;
+            }
+
+            balances.setMigrated(symbol);
+            BigInteger collateral = collateralPosition.at(dbKey).get(symbol);
+            if (collateral != null) {
+                balances.setCollateral(symbol, collateral);
+            }
+
+            BigInteger loan = loansPosition.at(dbKey).at(SICX_SYMBOL).get(symbol);
+            if (loan != null) {
+                balances.setLoan(symbol, loan);
+            }
+        }
+
+        return balances;
+    }
+
+    private void storeBalances() {
+        packedBalances.at(dbKey).set(balances.toBytes());
+    }
+
     public void setDataMigrationStatus(String symbol, Boolean value) {
-        dataMigrationStatus.at(dbKey).set(symbol, value);
+        Context.require(value, TAG + ": Data migration can not be reverted.");
+        getBalances().setMigrated(symbol);
+        storeBalances();
     }
 
     public Boolean getDataMigrationStatus(String symbol) {
-        return dataMigrationStatus.at(dbKey).getOrDefault(symbol, false);
+        return getBalances().isMigrated(symbol);
     }
 
     public void setLoansPosition(String collateral, String symbol, BigInteger value) {
-        loansPosition.at(dbKey).at(collateral).set(symbol, value);
+        if (!collateral.equals(SICX_SYMBOL)) {
+            loansPosition.at(dbKey).at(collateral).set(symbol, value);
+            return;
+        }
+
+        getBalances().setLoan(symbol, value);
+        storeBalances();
     }
 
     public BigInteger getLoansPosition(String collateral, String symbol) {
-        return loansPosition.at(dbKey).at(collateral).getOrDefault(symbol, BigInteger.ZERO);
+        if (!collateral.equals(SICX_SYMBOL)) {
+            return loansPosition.at(dbKey).at(collateral).getOrDefault(symbol, BigInteger.ZERO);
+        }
+
+        return getBalances().getLoan(symbol);
     }
 
     public void setCollateralPosition(String symbol, BigInteger value) {
-        collateralPosition.at(dbKey).set(symbol, value);
+        getBalances().setCollateral(symbol, value);
+        storeBalances();
+    }
+
+    /**
+     * Moves the legacy snapshot balances of every asset that is not migrated yet into the packed balances, and adds
+     * them to the debt totals, and to the collateral totals if the position is already counted. The packed record is
+     * stored once.
+     */
+    public void migrateBalances() {
+        PositionBalances balances = getBalances();
+        AssetRegistry assets = getAssetRegistry();
+        int id = getSnapshotId(-1);
+        boolean migrated = false;
+        for (String symbol : assets.getSymbols()) {
+            if (balances.isMigrated(symbol)) {
+                continue;
+            }
+
+            BigInteger value = getAssets(id, symbol);
+            if (assets.isCollateral(symbol)) {
+                if (isCollateralCounted()) {
+                    addToTotalCollateral(symbol, BigInteger.ZERO, value);
+                }
+                balances.setCollateral(symbol, value);
+            } else {
+                BigInteger previousTotalDebt = LoansVariables.totalDebts.getOrDefault(symbol, BigInteger.ZERO);
+                LoansVariables.totalDebts.set(symbol, previousTotalDebt.add(value));
+                balances.setLoan(symbol, value);
+            }
+            balances.setMigrated(symbol);
+            migrated = true;
+        }
+
+        if (migrated) {
+            storeBalances();
+        }
+    }
+
+    /**
+     * @return True once the packed collateral balances of the position are included in the collateral totals
+     */
+    public boolean isCollateralCounted() {
+        return collateralCounted.at(dbKey).getOrDefault(false);
+    }
+
+    /**
+     * Adds the migrated collateral balances of the position to the protocol wide collateral totals, once. Positions
+     * are counted on their first collateral change after the totals were introduced, or by the migration batch.
+     */
+    public void countCollateral() {
+        if (isCollateralCounted()) {
+            return;
+        }
+
+        PositionBalances balances = getBalances();
+        for (String symbol : getAssetRegistry().getActiveCollateral()) {
+            if (balances.isMigrated(symbol)) {
+                addToTotalCollateral(symbol, BigInteger.ZERO, balances.getCollateral(symbol));
+            }
+        }
+        collateralCounted.at(dbKey).set(true);
+    }
+
+    /**
+     * Moves the protocol wide collateral total of a symbol from a previous to a new position balance.
+     */
+    public static void addToTotalCollateral(String symbol, BigInteger previous, BigInteger value) {
+        BigInteger current = value == null ? BigInteger.ZERO : value;
+        if (current.equals(previous)) {
+            return;
+        }
+
+        BigInteger total = LoansVariables.totalCollateral.getOrDefault(symbol, BigInteger.ZERO);
+        LoansVariables.totalCollateral.set(symbol, total.add(current).subtract(previous));
     }
 
     public BigInteger getCollateralPosition(String symbol) {
-        return collateralPosition.at(dbKey).getOrDefault(symbol, BigInteger.ZERO);
+        return getBalances().getCollateral(symbol);
     }
 
     public BigInteger getAssetPosition(String symbol) {
-        Context.require(arrayDbContains(AssetDB.assetSymbols, symbol), TAG + ": " + symbol + " is not a supported " +
-                "asset on Balanced.");
+        AssetRegistry assets = getAssetRegistry();
+        Context.require(assets.isSupported(symbol), TAG + ": " + symbol + " is not a supported asset on Balanced.");
 
         if (isBeforeContinuousRewardDay() || !getDataMigrationStatus(symbol)) {
             return getAssets(lastSnap(), symbol);
         }
 
-        Asset asset = AssetDB.getAsset(symbol);
-        Context.require(asset.isActive(), TAG + ": " + symbol + " is not an active asset on Balanced.");
+        Context.require(assets.isActive(symbol), TAG + ": " + symbol + " is not an active asset on Balanced.");
 
-        if (asset.isCollateral()) {
+        if (assets.isCollateral(symbol)) {
             return getCollateralPosition(symbol);
         } else {
             return getLoansPosition(SICX_SYMBOL, symbol);
@@ -144,24 +309,34 @@ public class Position {
 
     public void setAssetPosition(String symbol, BigInteger value) {
         BigInteger previousDebt = BigInteger.ZERO;
+        BigInteger previousCollateral = BigInteger.ZERO;
         if (isBeforeContinuousRewardDay()) {
             BigInteger day = checkSnap();
             setAssets(day.intValue(), symbol, value);
         }
 
-        if (!getDataMigrationStatus(symbol)) {
-            setDataMigrationStatus(symbol, true);
+        PositionBalances balances = getBalances();
+        if (!balances.isMigrated(symbol)) {
+            balances.setMigrated(symbol);
         } else {
-            previousDebt = getLoansPosition(SICX_SYMBOL, symbol);
+            previousDebt = balances.getLoan(symbol);
+            previousCollateral = balances.getCollateral(symbol);
         }
 
         if (symbol.equals(SICX_SYMBOL)) {
-            setCollateralPosition(SICX_SYMBOL, value);
+            balances.setCollateral(SICX_SYMBOL, value);
+            if (isCollateralCounted()) {
+                addToTotalCollateral(SICX_SYMBOL, previousCollateral, value);
+            } else {
+                countCollateral();
+            }
         } else {
-            setLoansPosition(SICX_SYMBOL, symbol, value);
+            balances.setLoan(symbol, value);
         }
+        storeBalances();
 
-        if (arrayDbContains(AssetDB.activeAssets, symbol)) {
+        AssetRegistry assets = getAssetRegistry();
+        if (assets.isActiveAsset(symbol)) {
             BigInteger previousTotalDebt = LoansVariables.totalDebts.getOrDefault(symbol, BigInteger.ZERO);
             BigInteger currentValue = BigInteger.ZERO;
             if (value != null) {
@@ -170,14 +345,49 @@ public class Position {
 
             BigInteger newTotalDebt = previousTotalDebt.add(currentValue).subtract(previousDebt);
             LoansVariables.totalDebts.set(symbol, newTotalDebt);
-            if ( value == null) {
-                AssetDB.getAsset(symbol).getBorrowers().remove(getId());
-            } else {
-                AssetDB.getAsset(symbol).getBorrowers().set(getId(), currentValue);
+            LinkedListDB borrowers = assets.getAsset(symbol).getBorrowers();
+            if (value == null) {
+                if (borrowers.contains(getId())) {
+                    borrowers.remove(getId());
+                }
+            } else if (borrowers.contains(getId())) {
+                borrowers.set(getId(), currentValue);
+            } else if (currentValue.signum() > 0) {
+                borrowers.append(currentValue, getId());
             }
         }
     }
 
+    /**
+     * Moves the position to the ratio bucket of its current sICX collateral and bnUSD debt. A position that also
+     * owes another loan asset can not be priced in tokens, so it goes to the lowest bucket and is always reported.
+     * Callers update the bucket once, after their last balance change of the position.
+     */
+    public void updateRatioBucket() {
+        PositionBalances balances = getBalances();
+        for (String symbol : getAssetRegistry().getActiveAssets()) {
+            if (!symbol.equals(BNUSD_SYMBOL) && getStoredBalance(balances, symbol, false).signum() > 0) {
+                RatioBuckets.updateLowest(getId());
+                return;
+            }
+        }
+
+        BigInteger collateral = getStoredBalance(balances, SICX_SYMBOL, true);
+        BigInteger debt = getStoredBalance(balances, BNUSD_SYMBOL, false);
+        RatioBuckets.update(getId(), collateral, debt);
+    }
+
+    /**
+     * Returns a balance from the loaded packed balances, or from the last snapshot if the symbol is not migrated yet.
+     */
+    private BigInteger getStoredBalance(PositionBalances balances, String symbol, boolean isCollateral) {
+        if (!balances.isMigrated(symbol)) {
+            return getAssets(lastSnap(), symbol);
+        }
+
+        return isCollateral ? balances.getCollateral(symbol) : balances.getLoan(symbol);
+    }
+
     private Integer lastSnap() {
         return getSnaps(getSnapsSize() - 1);
     }
@@ -192,9 +402,7 @@ public class Position {
 
         addSnaps(day.intValue());
         int previous = getSnaps(getSnapsSize() - 2);
-        int assetSymbolsCount = AssetDB.assetSymbols.size();
-        for (int i = 0; i < assetSymbolsCount; i++) {
-            String symbol = AssetDB.assetSymbols.get(i);
+        for (String symbol : getAssetRegistry().getSymbols()) {
             if (!getAssets(lastDay, symbol).equals(BigInteger.ZERO)) {
                 BigInteger value = getAssets(previous, symbol);
                 setAssets(day.intValue(), symbol, value);
@@ -203,6 +411,11 @@ public class Position {
         return day;
     }
 
+    /**
+     * Returns the snapshot day of the position that holds its data for a day. Snapshot days recorded since the day
+     * index was introduced, and any day at or after the last snapshot, take a constant number of reads. Older
+     * snapshot days and days between two snapshots of the position are not indexed and are binary searched.
+     */
     public Integer getSnapshotId(Integer day) {
         if (day < 0) {
             int index = day + getSnapsSize();
@@ -212,8 +425,18 @@ public class Position {
             return getSnaps(index);
         }
 
+        if (snapDays.at(dbKey).getOrDefault(day, false)) {
+            return day;
+        }
+
+        int size = getSnapsSize();
+        int last = getSnaps(size - 1);
+        if (day >= last) {
+            return last;
+        }
+
         int low = 0;
-        int high = getSnapsSize();
+        int high = size;
         int middle;
         while (low < high) {
             middle = (low + high) / 2;
@@ -241,9 +464,7 @@ public class Position {
                 return false;
             }
 
-            int activeAssetsCount = AssetDB.activeAssets.size();
-            for (int i = 0; i < activeAssetsCount; i++) {
-                String symbol = AssetDB.activeAssets.get(i);
+            for (String symbol : getAssetRegistry().getActiveAssets()) {
                 BigInteger debt = getAssets(id, symbol);
                 if (!debt.equals(BigInteger.ZERO)) {
                     return true;
@@ -253,9 +474,7 @@ public class Position {
             return false;
         }
 
-        int activeAssetsCount = AssetDB.activeAssets.size();
-        for (int i = 0; i < activeAssetsCount; i++) {
-            String symbol = AssetDB.activeAssets.get(i);
+        for (String symbol : getAssetRegistry().getActiveAssets()) {
             if (getDataMigrationStatus(symbol)) {
                 if (!getLoansPosition(SICX_SYMBOL, symbol).equals(BigInteger.ZERO)) {
                     return true;
@@ -277,62 +496,18 @@ public class Position {
      * @return Total collateral value
      */
     public BigInteger totalCollateral(Integer day) {
-        BigInteger totalCollateral = BigInteger.ZERO;
-
-        if (isBeforeContinuousRewardDay(day)) {
-            int id = getSnapshotId(day);
-            if (id == -1) {
-                return totalCollateral;
-            }
-
-            int activeCollateralCount = AssetDB.activeCollateral.size();
-            for (int i = 0; i < activeCollateralCount; i++) {
-                String symbol = AssetDB.activeCollateral.get(i);
-                Asset asset = AssetDB.getAsset(symbol);
-
-                Address assetAddress = asset.getAssetAddress();
-                Token assetContract = new Token(assetAddress);
-
-                BigInteger amount = getAssets(id, symbol);
-                BigInteger price;
-                if (day == -1 || day == LoansImpl._getDay().intValue()) {
-                    price = assetContract.priceInLoop();
-                } else {
-                    price = SnapshotDB.get(day).getPrices(symbol);
-                }
-
-                totalCollateral = totalCollateral.add(amount.multiply(price).divide(EXA));
-            }
-
-            return totalCollateral;
-        }
-
-        int activeCollateralCount = AssetDB.activeCollateral.size();
-        for (int i = 0; i < activeCollateralCount; i++) {
-            String symbol = AssetDB.activeCollateral.get(i);
-            Asset asset = AssetDB.getAsset(symbol);
-
-            Address assetAddress = asset.getAssetAddress();
-            Token assetContract = new Token(assetAddress);
-
-            BigInteger amount;
-            if (getDataMigrationStatus(symbol) && day == -1) {
-                amount = getCollateralPosition(symbol);
-            } else {
-                amount = getAssets(lastSnap(), symbol);
-            }
-            BigInteger price;
-            if (day == -1 || day == LoansImpl._getDay().intValue()) {
-                price = assetContract.priceInLoop();
-            } else {
-                price = SnapshotDB.get(day).getPrices(symbol);
-            }
-
-            totalCollateral = totalCollateral.add(amount.multiply(price).divide(EXA));
-        }
-
-        return totalCollateral;
+        return totalCollateral(day, new PriceContext(getAssetRegistry()));
+    }
 
+    /**
+     * Returns the total value of the total collateral in loop
+     *
+     * @param day    Day for which the total collateral sum has to be read
+     * @param prices Prices already fetched in the current transaction
+     * @return Total collateral value
+     */
+    public BigInteger totalCollateral(Integer day, PriceContext prices) {
+        return sumTotals(day, false, prices, false, true).collateral;
     }
 
     /**
@@ -343,59 +518,92 @@ public class Position {
      * @return Total debt in loop
      */
     public BigInteger totalDebt(Integer day, boolean readOnly) {
-        BigInteger totalDebt = BigInteger.ZERO;
+        return totalDebt(day, readOnly, new PriceContext(getAssetRegistry()));
+    }
 
-        if (isBeforeContinuousRewardDay(day)) {
-            int id = getSnapshotId(day);
-            if (id == -1) {
-                return totalDebt;
-            }
+    /**
+     * Returns the total value of all outstanding debt in loop. Only valid for updated positions.
+     *
+     * @param day      Day for which total debt required
+     * @param readOnly True if the price has to be updated in token contract
+     * @param prices   Prices already fetched in the current transaction
+     * @return Total debt in loop
+     */
+    public BigInteger totalDebt(Integer day, boolean readOnly, PriceContext prices) {
+        return sumTotals(day, readOnly, prices, true, false).totalDebt;
+    }
 
-            int activeAssetsCount = AssetDB.activeAssets.size();
-            for (int i = 0; i < activeAssetsCount; i++) {
-                String symbol = AssetDB.activeAssets.get(i);
-                BigInteger amount = getAssets(id, symbol);
-                BigInteger price = BigInteger.ZERO;
-                if (amount.compareTo(BigInteger.ZERO) > 0) {
-                    if (day == -1 || day == LoansImpl._getDay().intValue()) {
-                        price = getAssetPrice(symbol, readOnly);
-                    } else {
-                        price = SnapshotDB.get(day).getPrices(symbol);
-                    }
-                }
+    /**
+     * Returns the total debt and collateral values in loop, summed in a single pass over the assets.
+     *
+     * @param day      Day for which the totals have to be read
+     * @param readOnly True if the price is not to be updated
+     * @param prices   Prices already fetched in the current transaction
+     * @return Standing with only the total debt and collateral set
+     */
+    public Standing getTotals(Integer day, boolean readOnly, PriceContext prices) {
+        return sumTotals(day, readOnly, prices, true, true);
+    }
 
-                totalDebt = totalDebt.add(amount.multiply(price).divide(EXA));
+    private Standing sumTotals(Integer day, boolean readOnly, PriceContext prices, boolean includeDebt,
+                               boolean includeCollateral) {
+        Standing totals = new Standing();
+        totals.totalDebt = BigInteger.ZERO;
+        totals.collateral = BigInteger.ZERO;
+
+        boolean beforeContinuousRewards = prices.isBeforeContinuousRewardDay(day);
+        Integer snapshotId = null;
+        if (beforeContinuousRewards) {
+            snapshotId = getSnapshotId(day);
+            if (snapshotId == -1) {
+                return totals;
             }
-
-            return totalDebt;
         }
 
-        int activeAssetsCount = AssetDB.activeAssets.size();
-        for (int i = 0; i < activeAssetsCount; i++) {
-            String symbol = AssetDB.activeAssets.get(i);
+        boolean currentPrices = day == -1 || day == prices.getDay();
+        boolean currentBalances = !beforeContinuousRewards && day == -1;
+        Snapshot snapshot = currentPrices ? null : SnapshotDB.get(day);
+        AssetRegistry assets = prices.getAssets();
 
-            BigInteger amount;
-            if (getDataMigrationStatus(symbol) && day == -1) {
-                amount = getLoansPosition(SICX_SYMBOL, symbol);
-            } else {
-                amount = getAssets(lastSnap(), symbol);
+        if (includeCollateral) {
+            for (String symbol : assets.getActiveCollateral()) {
+                BigInteger amount;
+                if (currentBalances && getDataMigrationStatus(symbol)) {
+                    amount = getCollateralPosition(symbol);
+                } else {
+                    if (snapshotId == null) {
+                        snapshotId = lastSnap();
+                    }
+                    amount = getAssets(snapshotId, symbol);
+                }
+
+                BigInteger price = currentPrices ? prices.priceInLoop(symbol) : snapshot.getPrices(symbol);
+                totals.collateral = totals.collateral.add(amount.multiply(price).divide(EXA));
             }
+        }
 
-            BigInteger price = BigInteger.ZERO;
-            if (amount.compareTo(BigInteger.ZERO) > 0) {
-                if (day == -1 || day == LoansImpl._getDay().intValue()) {
-                    price = getAssetPrice(symbol, readOnly);
+        if (includeDebt) {
+            for (String symbol : assets.getActiveAssets()) {
+                BigInteger amount;
+                if (currentBalances && getDataMigrationStatus(symbol)) {
+                    amount = getLoansPosition(SICX_SYMBOL, symbol);
                 } else {
-                    price = SnapshotDB.get(day).getPrices(symbol);
+                    if (snapshotId == null) {
+                        snapshotId = lastSnap();
+                    }
+                    amount = getAssets(snapshotId, symbol);
+                }
+
+                if (amount.signum() > 0) {
+                    BigInteger price = currentPrices ? prices.getPrice(symbol, readOnly) : snapshot.getPrices(symbol);
+                    totals.totalDebt = totals.totalDebt.add(amount.multiply(price).divide(EXA));
                 }
             }
-            totalDebt = totalDebt.add(amount.multiply(price).divide(EXA));
         }
 
-        return totalDebt;
+        return totals;
     }
 
-
     /**
      * Calculates the standing for a position. Uses the readonly method for asset prices if the _readonly flag is True.
      *
@@ -404,9 +612,19 @@ public class Position {
      * @return Total standing for a day
      */
     public Standing getStanding(Integer day, Boolean readOnly) {
-        Standing standing = new Standing();
-        standing.totalDebt = totalDebt(day, readOnly);
-        standing.collateral = totalCollateral(day);
+        return getStanding(day, readOnly, new PriceContext(getAssetRegistry()));
+    }
+
+    /**
+     * Calculates the standing for a position, reusing the prices already fetched in the current transaction.
+     *
+     * @param day      Day for which the standing has to be calculated
+     * @param readOnly True if the price is not to be updated
+     * @param prices   Prices already fetched in the current transaction
+     * @return Total standing for a day
+     */
+    public Standing getStanding(Integer day, Boolean readOnly, PriceContext prices) {
+        Standing standing = getTotals(day, readOnly, prices);
 
         if (standing.totalDebt.equals(BigInteger.ZERO)) {
             standing.ratio = BigInteger.ZERO;
@@ -421,11 +639,11 @@ public class Position {
 
         standing.ratio = standing.collateral.multiply(EXA).divide(standing.totalDebt);
 
-        if (isBeforeContinuousRewardDay(day)) {
-            if (standing.ratio.compareTo(miningRatio.get().multiply(EXA).divide(POINTS)) > 0) {
+        if (prices.isBeforeContinuousRewardDay(day)) {
+            if (standing.ratio.compareTo(prices.getMiningThreshold()) > 0) {
                 BigInteger assetPrice;
-                if (day == -1 || day == LoansImpl._getDay().intValue()) {
-                    assetPrice = getAssetPrice(BNUSD_SYMBOL, readOnly);
+                if (day == -1 || day == prices.getDay()) {
+                    assetPrice = prices.getPrice(BNUSD_SYMBOL, readOnly);
                 } else {
                     assetPrice = SnapshotDB.get(day).getPrices(BNUSD_SYMBOL);
                 }
@@ -436,15 +654,15 @@ public class Position {
                 } else {
                     standing.standing = Standings.MINING;
                 }
-            } else if (standing.ratio.compareTo(lockingRatio.get().multiply(EXA).divide(POINTS)) > 0) {
+            } else if (standing.ratio.compareTo(prices.getLockingThreshold()) > 0) {
                 standing.standing = Standings.NOT_MINING;
-            } else if (standing.ratio.compareTo(liquidationRatio.get().multiply(EXA).divide(POINTS)) > 0) {
+            } else if (standing.ratio.compareTo(prices.getLiquidationThreshold()) > 0) {
                 standing.standing = Standings.LOCKED;
             } else {
                 standing.standing = Standings.LIQUIDATE;
             }
         } else {
-            if (standing.ratio.compareTo(liquidationRatio.get().multiply(EXA).divide(POINTS)) > 0) {
+            if (standing.ratio.compareTo(prices.getLiquidationThreshold()) > 0) {
                 standing.standing = Standings.MINING;
             } else {
                 standing.standing = Standings.LIQUIDATE;
@@ -455,14 +673,18 @@ public class Position {
     }
 
     public Standings updateStanding(Integer day) {
+        return updateStanding(day, new PriceContext(getAssetRegistry())).standing;
+    }
+
+    public Standing updateStanding(Integer day, PriceContext prices) {
         Context.require(isBeforeContinuousRewardDay(day), continuousRewardsErrorMessage);
 
         DictDB<String, BigInteger> state = SnapshotDB.get(day).getAllPositionStates(getId());
-        Standing standing = getStanding(day, false);
+        Standing standing = getStanding(day, false, prices);
         state.set("total_debt", standing.totalDebt);
         state.set("ratio", standing.ratio);
         state.set("standing", BigInteger.valueOf(standing.standing.ordinal()));
-        return standing.standing;
+        return standing;
     }
 
     public Map<String, Object> toMap(Integer day) {
@@ -472,11 +694,9 @@ public class Position {
         }
 
         Map<String, BigInteger> assetAmounts = new HashMap<>();
-        int assetSymbolsCount = AssetDB.assetSymbols.size();
-        for (int i = 0; i < assetSymbolsCount; i++) {
-            String symbol = AssetDB.assetSymbols.get(i);
-            Asset asset = AssetDB.getAsset(symbol);
-            if (!asset.isActive()) {
+        AssetRegistry assets = getAssetRegistry();
+        for (String symbol : assets.getSymbols()) {
+            if (!assets.isActive(symbol)) {
                 continue;
             }
 
@@ -496,7 +716,7 @@ public class Position {
             }
         }
 
-        Standing standing = getStanding(day, true);
+        Standing standing = getStanding(day, true, new PriceContext(assets));
         Map<String, Object> positionDetails = new HashMap<>();
 
         positionDetails.put("pos_id", getId());
@@ -514,15 +734,4 @@ public class Position {
 
         return positionDetails;
     }
-
-    private BigInteger getAssetPrice(String symbol, Boolean readOnly) {
-        Asset asset = AssetDB.getAsset(symbol);
-        Address assetAddress = asset.getAssetAddress();
-        Token assetContract = new Token(assetAddress);
-        if (readOnly) {
-            return assetContract.lastPriceInLoop();
-        } else {
-            return assetContract.priceInLoop();
-        }
-    }
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.positions;
+
+import score.Context;
+import scorex.util.ArrayList;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static network.balanced.score.core.loans.positions.Position.TAG;
+
+/**
+ * Continuous rewards balances of a position, packed into a single storage record.
+ * <p>
+ * Layout (version 1): {@code [version][count]} followed by {@code count} entries of
+ * {@code [migrated][symbol length][symbol][collateral length][collateral][loan length][loan]}, where flags and
+ * lengths are single bytes and amounts are big-endian two's complement. A zero length amount is an unset balance.
+ */
+class PositionBalances {
+    static final byte VERSION = 1;
+    private static final int MAX_FIELD_LENGTH = 0xff;
+
+    private final List<String> symbols = new ArrayList<>();
+    private final List<Boolean> migrated = new ArrayList<>();
+    private final List<BigInteger> collateral = new ArrayList<>();
+    private final List<BigInteger> loans = new ArrayList<>();
+
+    boolean isMigrated(String symbol) {
+        int index = symbols.indexOf(symbol);
+        return index != -1 && migrated.get(index);
+    }
+
+    BigInteger getCollateral(String symbol) {
+        return get(collateral, symbol);
+    }
+
+    BigInteger getLoan(String symbol) {
+        return get(loans, symbol);
+    }
+
+    void setMigrated(String symbol) {
+        migrated.set(indexOf(symbol), true);
+    }
+
+    void setCollateral(String symbol, BigInteger value) {
+        collateral.set(indexOf(symbol), value);
+    }
+
+    void setLoan(String symbol, BigInteger value) {
+        loans.set(indexOf(symbol), value);
+    }
+
+    private BigInteger get(List<BigInteger> balances, String symbol) {
+        int index = symbols.indexOf(symbol);
+        if (index == -1 || balances.get(index) == null) {
+            return BigInteger.ZERO;
+        }
+
+        return balances.get(index);
+    }
+
+    private int indexOf(String symbol) {
+        int index = symbols.indexOf(symbol);
+        if (index != -1) {
+            return index;
+        }
+
+        symbols.add(symbol);
+        migrated.add(false);
+        collateral.add(null);
+        loans.add(null);
+        return symbols.size() - 1;
+    }
+
+    byte[] toBytes() {
+        int count = symbols.size();
+        Context.require(count <= MAX_FIELD_LENGTH, TAG + ": Position record can not hold more than " +
+                MAX_FIELD_LENGTH + " assets.");
+        byte[][] fields = new byte[count * 3][];
+        int length = 2;
+        for (int i = 0; i < count; i++) {
+            fields[3 * i] = symbols.get(i).getBytes();
+            fields[3 * i + 1] = toBytes(collateral.get(i));
+            fields[3 * i + 2] = toBytes(loans.get(i));
+            for (int j = 3 * i; j < 3 * i + 3; j++) {
+                Context.require(fields[j].length <= MAX_FIELD_LENGTH, TAG + ": Position record fields can not be " +
+                        "longer than " + MAX_FIELD_LENGTH + " bytes.");
+            }
+            length += 4 + fields[3 * i].length + fields[3 * i + 1].length + fields[3 * i + 2].length;
+        }
+
+        byte[] record = new byte[length];
+        record[0] = VERSION;
+        record[1] = (byte) count;
+        int offset = 2;
+        for (int i = 0; i < fields.length; i++) {
+            if (i % 3 == 0) {
+                record[offset++] = (byte) (migrated.get(i / 3) ? 1 : 0);
+            }
+
+            byte[] field = fields[i];
+            record[offset++] = (byte) field.length;
+            System.arraycopy(field, 0, record, offset, field.length);
+            offset += field.length;
+        }
+
+        return record;
+    }
+
+    static PositionBalances fromBytes(byte[] record) {
+        Context.require(record[0] == VERSION, TAG + ": Unsupported position record version " + record[0]);
+
+        PositionBalances balances = new PositionBalances();
+        int count = record[1] & 0xff;
+        int offset = 2;
+        for (int i = 0; i < count; i++) {
+            balances.migrated.add(record[offset++] == 1);
+
+            int length = record[offset++] & 0xff;
+            balances.symbols.add(new String(record, offset, length));
+            offset += length;
+
+            length = record[offset++] & 0xff;
+            balances.collateral.add(toBigInteger(record, offset, length));
+            offset += length;
+
+            length = record[offset++] & 0xff;
+            balances.loans.add(toBigInteger(record, offset, length));
+            offset += length;
+        }
+
+        return balances;
+    }
+
+    private static byte[] toBytes(BigInteger value) {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        return value.toByteArray();
+    }
+
+    private static BigInteger toBigInteger(byte[] record, int offset, int length) {
+        if (length == 0) {
+            return null;
+        }
+
+        byte[] value = new byte[length];
+        System.arraycopy(record, offset, value, 0, length);
+        return new BigInteger(value);
+    }
+}
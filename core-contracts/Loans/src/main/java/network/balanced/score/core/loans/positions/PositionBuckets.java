@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package network.balanced.score.core.loans.positions;
+
+import network.balanced.score.lib.utils.EnumerableSetDB;
+import score.Context;
+import score.DictDB;
+import scorex.util.ArrayList;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Index of position ids grouped into logarithmic buckets of a value. Each power of two is split into four buckets,
+ * so all positions in a bucket are within 19% of each other.
+ */
+class PositionBuckets {
+    private final String bucketPrefix;
+    private final EnumerableSetDB<Integer> nonEmptyBuckets;
+    private final DictDB<Integer, Integer> positionBucket;
+
+    PositionBuckets(String bucketPrefix, String nonEmptyBuckets, String positionBucket) {
+        this.bucketPrefix = bucketPrefix;
+        this.nonEmptyBuckets = new EnumerableSetDB<>(nonEmptyBuckets, Integer.class);
+        this.positionBucket = Context.newDictDB(positionBucket, Integer.class);
+    }
+
+    static int getBucket(BigInteger value) {
+        if (value.signum() == 0) {
+            return 0;
+        }
+
+        int bitLength = value.bitLength();
+        BigInteger leadingBits;
+        if (bitLength >= 3) {
+            leadingBits = value.shiftRight(bitLength - 3);
+        } else {
+            leadingBits = value.shiftLeft(3 - bitLength);
+        }
+
+        return bitLength * 4 + (leadingBits.intValue() & 3);
+    }
+
+    private EnumerableSetDB<Integer> getPositions(int bucket) {
+        return new EnumerableSetDB<>(bucketPrefix + bucket, Integer.class);
+    }
+
+    /**
+     * Moves a position to the given bucket, or out of the index if the bucket is null.
+     */
+    void update(int id, Integer bucket) {
+        Integer current = positionBucket.get(id);
+        if (bucket == null ? current == null : bucket.equals(current)) {
+            return;
+        }
+
+        if (current != null) {
+            EnumerableSetDB<Integer> positions = getPositions(current);
+            positions.remove(id);
+            if (positions.length() == 0) {
+                nonEmptyBuckets.remove(current);
+            }
+        }
+
+        if (bucket != null) {
+            getPositions(bucket).add(id);
+            nonEmptyBuckets.add(bucket);
+        }
+
+        positionBucket.set(id, bucket);
+    }
+
+    /**
+     * Returns the ids of the positions in the buckets from {@code minBucket} to {@code maxBucket}, ordered by bucket.
+     *
+     * @param minBucket  Lowest bucket to include
+     * @param maxBucket  Highest bucket to include
+     * @param descending Whether to start with the highest bucket
+     * @param offset     Number of ids to skip
+     * @param limit      Maximum number of ids to return
+     * @return Position ids
+     */
+    List<Integer> getPositions(int minBucket, int maxBucket, boolean descending, int offset, int limit) {
+        int bucketCount = nonEmptyBuckets.length();
+        int[] buckets = new int[bucketCount];
+        int selectedCount = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            int bucket = nonEmptyBuckets.at(i);
+            if (bucket < minBucket || bucket > maxBucket) {
+                continue;
+            }
+
+            int index = selectedCount++;
+            while (index > 0 && (descending ? buckets[index - 1] < bucket : buckets[index - 1] > bucket)) {
+                buckets[index] = buckets[index - 1];
+                index--;
+            }
+            buckets[index] = bucket;
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < selectedCount && ids.size() < limit; i++) {
+            EnumerableSetDB<Integer> positions = getPositions(buckets[i]);
+            int positionCount = positions.length();
+            if (offset >= positionCount) {
+                offset -= positionCount;
+                continue;
+            }
+
+            for (int j = offset; j < positionCount && ids.size() < limit; j++) {
+                ids.add(positions.at(j));
+            }
+            offset = 0;
+        }
+
+        return ids;
+    }
+}
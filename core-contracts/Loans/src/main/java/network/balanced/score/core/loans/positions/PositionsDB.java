@@ -18,29 +18,31 @@ package network.balanced.score.core.loans.positions;
 
 import network.balanced.score.core.loans.LoansImpl;
 import network.balanced.score.core.loans.LoansVariables;
-import network.balanced.score.core.loans.asset.Asset;
-import network.balanced.score.core.loans.asset.AssetDB;
+import network.balanced.score.core.loans.asset.AssetRegistry;
 import network.balanced.score.core.loans.linkedlist.LinkedListDB;
 import network.balanced.score.core.loans.snapshot.Snapshot;
 import network.balanced.score.core.loans.snapshot.SnapshotDB;
 import network.balanced.score.core.loans.utils.IdFactory;
+import network.balanced.score.core.loans.utils.PriceContext;
 import network.balanced.score.core.loans.utils.Token;
 import score.Address;
 import score.Context;
 import score.DictDB;
 import score.VarDB;
+import scorex.util.HashMap;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Map;
 
+import static network.balanced.score.core.loans.LoansVariables.precomputeBudget;
+import static network.balanced.score.core.loans.LoansVariables.precomputeCost;
 import static network.balanced.score.core.loans.LoansVariables.snapBatchSize;
 import static network.balanced.score.core.loans.positions.Position.TAG;
 import static network.balanced.score.core.loans.utils.Checks.isBeforeContinuousRewardDay;
 import static network.balanced.score.core.loans.utils.LoansConstants.*;
 
 public class PositionsDB {
-    private static final String POSITION_DB_PREFIX = "position";
-
     private static final String ID_FACTORY = "idfactory";
     private static final String ADDRESS_ID = "addressid";
     private static final String NONZERO = "nonzero";
@@ -50,10 +52,19 @@ public class PositionsDB {
     private static final DictDB<Address, Integer> addressIds = Context.newDictDB(ADDRESS_ID, Integer.class);
     private static final VarDB<Integer> nextPositionNode = Context.newVarDB(NEXT_NODE, Integer.class);
 
+    // Positions handed out in the current transaction, so that all callers share the balance cache of a position
+    private static byte[] cachedTransaction;
+    private static long cachedBlockHeight;
+    private static Map<Integer, Position> cachedPositions;
+
     public static Integer getAddressIds(Address _owner) {
         return addressIds.getOrDefault(_owner, 0);
     }
 
+    /**
+     * Returns the position with the given id. Within a transaction every call returns the same instance for an id,
+     * so a write through one reference is seen by all others and no stale packed balances are written back.
+     */
     public static Position get(Integer id) {
         int lastUid = idFactory.getLastUid();
         if (id < 0) {
@@ -61,7 +72,27 @@ public class PositionsDB {
         }
         Context.require(id >= 1, TAG + ": That is not a valid key.");
         Context.require(id <= lastUid, TAG + ": That key does not exist yet.");
-        return new Position(POSITION_DB_PREFIX + "|" + id);
+
+        byte[] transaction = Context.getTransactionHash();
+        if (transaction == null) {
+            return new Position(id);
+        }
+
+        long blockHeight = Context.getBlockHeight();
+        if (cachedPositions == null || blockHeight != cachedBlockHeight ||
+                !Arrays.equals(transaction, cachedTransaction)) {
+            cachedTransaction = transaction;
+            cachedBlockHeight = blockHeight;
+            cachedPositions = new HashMap<>();
+        }
+
+        Position position = cachedPositions.get(id);
+        if (position == null) {
+            position = new Position(id);
+            cachedPositions.put(id, position);
+        }
+
+        return position;
     }
 
     public static int size() {
@@ -130,6 +161,11 @@ public class PositionsDB {
         } else {
             newPosition.setCollateralPosition(SICX_SYMBOL, BigInteger.ZERO);
             newPosition.setDataMigrationStatus(SICX_SYMBOL, true);
+            // A new position has nothing to migrate, so it does not hold back a migration cursor that caught up
+            newPosition.countCollateral();
+            if (LoansVariables.migrationCursor.getOrDefault(0) == id - 1) {
+                LoansVariables.migrationCursor.set(id);
+            }
         }
         return newPosition;
     }
@@ -141,15 +177,10 @@ public class PositionsDB {
     public static void takeSnapshot() {
         Snapshot snapshot = SnapshotDB.get(-1);
 
-        int assetSymbolsCount = AssetDB.assetSymbols.size();
-        for (int i = 0; i < assetSymbolsCount; i++) {
-            String symbol = AssetDB.assetSymbols.get(i);
-            Asset asset = AssetDB.getAsset(symbol);
-
-            Address assetAddress = asset.getAssetAddress();
-            Token assetContract = new Token(assetAddress);
-
-            if (asset.isActive()) {
+        AssetRegistry assets = new AssetRegistry();
+        for (String symbol : assets.getSymbols()) {
+            if (assets.isActive(symbol)) {
+                Token assetContract = new Token(assets.getAddress(symbol));
                 snapshot.setPrices(symbol, assetContract.priceInLoop());
             }
         }
@@ -164,7 +195,7 @@ public class PositionsDB {
      * Iterates once over all positions to calculate their ratios at the end of the snapshot period.
      *
      * @param day Operating day of the snapshot as passed from rewards via the precompute method
-     * @param batchSize Number of positions to bring up to date
+     * @param batchSize Number of positions to bring up to date, unless a precompute budget and cost estimate are set
      * @return True if complete
      */
     public static Boolean calculateSnapshot(BigInteger day, int batchSize) {
@@ -223,14 +254,22 @@ public class PositionsDB {
 
         int remaining = totalNonZero - index;
         BigInteger batchMiningDebt = BigInteger.ZERO;
-        int loops = Math.min(remaining, batchSize);
+        PriceContext prices = new PriceContext();
+        AssetRegistry assets = prices.getAssets();
+        int loops = Math.min(remaining, getPrecomputeBatchSize(batchSize));
+        int standingReads = 1 + assets.getActiveAssets().size() + assets.getActiveCollateral().size();
+        long steps = 0;
 
         for (int i = 0; i < loops; i++) {
             int accountId = nextNode;
             Position position = get(accountId);
+            position.setAssetRegistry(assets);
+            steps += 2 * PRECOMPUTE_READ_STEPS;
             if (snapshotId >= position.getSnaps(0)) {
-                Standings standing = position.updateStanding(snapshotId);
+                Standings standing = position.updateStanding(snapshotId, prices).standing;
+                steps += standingReads * PRECOMPUTE_READ_STEPS + 3 * PRECOMPUTE_WRITE_STEPS;
                 if (!position.getDataMigrationStatus(BNUSD_SYMBOL)) {
+                    steps += 2 * PRECOMPUTE_READ_STEPS + 3 * PRECOMPUTE_WRITE_STEPS;
                     BigInteger previousTotalDebt = LoansVariables.totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
                     BigInteger debtAmount = position.getAssets(position.getSnapshotId(day.intValue()), BNUSD_SYMBOL);
                     LoansVariables.totalDebts.set(BNUSD_SYMBOL, previousTotalDebt.add(debtAmount));
@@ -239,6 +278,7 @@ public class PositionsDB {
                 }
 
                 if (standing == Standings.MINING) {
+                    steps += PRECOMPUTE_READ_STEPS + 2 * PRECOMPUTE_WRITE_STEPS;
                     snapshot.addMining(accountId);
                     batchMiningDebt = batchMiningDebt.add(snapshot.getPositionStates(accountId, "total_debt"));
                 }
@@ -254,7 +294,43 @@ public class PositionsDB {
         snapshot.setTotalMiningDebt(snapshot.getTotalMiningDebt().add(batchMiningDebt));
         snapshot.setPreComputeIndex(index);
         nextPositionNode.set(nextNode);
+        if (loops > 0) {
+            recordPrecomputeCost(steps, loops);
+        }
 
         return totalNonZero == index;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the number of positions a precompute call should process. Once a step budget is set and a previous run
+     * has measured the cost per position, the batch is the number of positions that fit the budget, whatever batch
+     * size rewards asks for. Otherwise the requested batch size is used, and that run takes the first measurement.
+     *
+     * @param requestedBatchSize Batch size passed in by rewards
+     * @return Number of positions to process
+     */
+    private static int getPrecomputeBatchSize(int requestedBatchSize) {
+        int budget = precomputeBudget.getOrDefault(0);
+        int cost = precomputeCost.getOrDefault(0);
+        if (budget == 0 || cost == 0) {
+            return requestedBatchSize;
+        }
+
+        return Math.max(1, Math.min(budget / cost, MAX_PRECOMPUTE_BATCH));
+    }
+
+    /**
+     * Folds the steps of a precompute batch into the moving average cost per position. The steps are counted from
+     * the storage reads and writes each position of the batch actually needed, so positions outside the snapshot or
+     * already migrated lower the estimate.
+     */
+    private static void recordPrecomputeCost(long steps, int positions) {
+        int measured = (int) Math.min(steps / positions, Integer.MAX_VALUE);
+        int previous = precomputeCost.getOrDefault(0);
+        if (previous == 0) {
+            precomputeCost.set(measured);
+        } else {
+            precomputeCost.set((int) (((long) previous * 3 + measured) / 4));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package network.balanced.score.core.loans.positions;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static network.balanced.score.core.loans.utils.LoansConstants.EXA;
+
+/**
+ * Index of positions with debt, grouped by their collateral to debt ratio in tokens (sICX per bnUSD, scaled by EXA).
+ * The ratio does not depend on prices, so positions only move between buckets when their balances change. Each
+ * power of two is split into four buckets, so all positions in a bucket are within 19% of each other.
+ * <p>
+ * Only sICX collateral against bnUSD debt is ranked. Positions with debt in any other loan asset are kept in the
+ * lowest bucket, so they are always returned as candidates. Positions enter the index on a balance change or when
+ * they are visited by the migration batch.
+ */
+public class RatioBuckets {
+    private static final PositionBuckets index = new PositionBuckets("ratio_bucket_", "ratio_buckets",
+            "position_ratio_bucket");
+
+    /**
+     * Moves a position to the bucket of its current balances, or out of the index if it has no debt.
+     */
+    static void update(int id, BigInteger collateral, BigInteger debt) {
+        Integer bucket = null;
+        if (debt.signum() > 0) {
+            bucket = PositionBuckets.getBucket(collateral.multiply(EXA).divide(debt));
+        }
+
+        index.update(id, bucket);
+    }
+
+    /**
+     * Moves a position to the lowest bucket, for debt that can not be ranked by its bnUSD ratio.
+     */
+    static void updateLowest(int id) {
+        index.update(id, 0);
+    }
+
+    /**
+     * Returns the ids of the positions in all buckets that may hold a ratio at or below the given ratio, lowest
+     * bucket first.
+     *
+     * @param maxRatio Collateral to debt ratio in tokens, scaled by EXA
+     * @param limit    Maximum number of ids to return
+     * @return Position ids
+     */
+    public static List<Integer> getPositionsAtOrBelow(BigInteger maxRatio, int limit) {
+        return index.getPositions(0, PositionBuckets.getBucket(maxRatio), false, 0, limit);
+    }
+}
@@ -116,10 +116,9 @@ public class Snapshot {
     public Map<String, Object> toMap() {
         Map<String, BigInteger> prices = new HashMap<>();
 
-        int assetSymbolsCount = AssetDB.assetSymbols.size();
-        for(int i = 0; i < assetSymbolsCount; i++) {
-            String symbol = AssetDB.assetSymbols.get(i);
-            if (AssetDB.getAsset(symbol).getAssetAddedTime().compareTo(getSnapshotTime()) < 0 && AssetDB.getAsset(symbol).isActive()) {
+        AssetRegistry assets = new AssetRegistry();
+        for (String symbol : assets.getSymbols()) {
+            if (assets.getAsset(symbol).getAssetAddedTime().compareTo(getSnapshotTime()) < 0 && assets.isActive(symbol)) {
                 prices.put(symbol, this.getPrices(symbol));
             }
         }
@@ -19,12 +19,18 @@ package network.balanced.score.core.loans.snapshot;
 import network.balanced.score.core.loans.LoansImpl;
 import score.ArrayDB;
 import score.Context;
+import score.DictDB;
+import score.VarDB;
+
+import static network.balanced.score.core.loans.utils.LoansConstants.MAX_SNAPSHOT_INDEX_GAP;
 
 public class SnapshotDB {
 
     private static final String TAG = "BalancedLoansSnapshots";
     private static final String SNAP_DB_PREFIX = "snaps";
     private static final ArrayDB<Integer> indexes = Context.newArrayDB("indexes", Integer.class);
+    private static final DictDB<Integer, Integer> dayIndex = Context.newDictDB("snapshot_day_index", Integer.class);
+    private static final VarDB<Integer> dayIndexCursor = Context.newVarDB("snapshot_day_index_cursor", Integer.class);
 
     public static Snapshot get(Integer day) {
         int inputDay = day;
@@ -49,6 +55,10 @@ public class SnapshotDB {
         return indexes.get(indexes.size() - 1);
     }
 
+    /**
+     * Returns the snapshot day that holds the data of a day. Days are read from the day index, which covers every day
+     * since the first snapshot once indexDays has caught up. Days that are not indexed yet are binary searched.
+     */
     public static Integer getSnapshotId(Integer day) {
         if (day < 0) {
             int index = day + indexes.size();
@@ -56,6 +66,27 @@ public class SnapshotDB {
             return indexes.get(index);
         }
 
+        Integer indexed = dayIndex.get(day);
+        if (indexed != null) {
+            return indexed;
+        }
+
+        if (indexes.get(0).equals(day)) {
+            return day;
+        }
+
+        int position = countSnapshotsUpTo(day);
+        if (position == 0) {
+            return -1;
+        }
+
+        return indexes.get(position - 1);
+    }
+
+    /**
+     * Returns the number of snapshots taken on or before a day.
+     */
+    private static int countSnapshotsUpTo(int day) {
         int low = 0;
         int high = indexes.size();
         int middle;
@@ -68,13 +99,49 @@ public class SnapshotDB {
             }
         }
 
-        if (indexes.get(0).equals(day)) {
+        return low;
+    }
+
+    /**
+     * Adds the next days to the day index, starting at the index cursor, so that snapshots taken before the index
+     * existed, and gaps longer than MAX_SNAPSHOT_INDEX_GAP, are also looked up in constant time.
+     *
+     * @param count Number of days to index
+     * @return Next day to index
+     */
+    public static int indexDays(int count) {
+        Context.require(indexes.size() > 0, TAG + ": No snapshot exists to index.");
+        int lastSnapshot = getLastSnapshotIndex();
+        int day = getIndexCursor();
+        if (day > lastSnapshot) {
             return day;
-        } else if (low == 0) {
-            return -1;
         }
 
-        return indexes.get(low - 1);    
+        int position = countSnapshotsUpTo(day) - 1;
+        int snapshot = indexes.get(position);
+        int size = indexes.size();
+        int end = (int) Math.min((long) day + count, (long) lastSnapshot + 1);
+        for (; day < end; day++) {
+            while (position + 1 < size && indexes.get(position + 1) <= day) {
+                position++;
+                snapshot = indexes.get(position);
+            }
+            dayIndex.set(day, snapshot);
+        }
+
+        dayIndexCursor.set(day);
+        return day;
+    }
+
+    /**
+     * @return Next day to add to the day index
+     */
+    public static int getIndexCursor() {
+        if (indexes.size() == 0) {
+            return 0;
+        }
+
+        return dayIndexCursor.getOrDefault(indexes.get(0));
     }
 
     public static void startNewSnapshot() {
@@ -82,7 +149,15 @@ public class SnapshotDB {
 
         Context.require(indexes.size() == 0 || day > getLastSnapshotIndex(), TAG + ": New snapshot called for a day " +
                 "less than the previous snapshot.");
+        if (indexes.size() > 0) {
+            // Days without a snapshot resolve to the previous one, longer gaps are left to indexDays
+            int previous = getLastSnapshotIndex();
+            for (int gapDay = Math.max(previous + 1, day - MAX_SNAPSHOT_INDEX_GAP); gapDay < day; gapDay++) {
+                dayIndex.set(gapDay, previous);
+            }
+        }
         indexes.add(day);
+        dayIndex.set(day, day);
         Snapshot snapshot = getSnapshot(day);
         snapshot.setDay(day);
     }
@@ -39,6 +39,19 @@ public class LoansConstants extends Constants {
     public static final int MAX_DEBTS_LIST_LENGTH = 400;
     public static final int SNAP_BATCH_SIZE = 50;
     public static final int REDEEM_BATCH_SIZE = 50;
+    public static final int MAX_AT_RISK_POSITIONS = 100;
+    public static final int MAX_POSITIONS_EXPORT = 300;
+    public static final int MAX_LIQUIDATION_BATCH = 20;
+    public static final int MAX_MIGRATION_BATCH = 50;
+    public static final int MAX_SNAPSHOT_INDEX_GAP = 30;
+    public static final int MAX_SNAPSHOT_INDEX_BATCH = 500;
+    public static final int MAX_PRECOMPUTE_BATCH = 500;
+    // Step cost of a storage read and write of a precompute entry, including the base cost and a short key and value
+    public static final int PRECOMPUTE_READ_STEPS = 5_000;
+    public static final int PRECOMPUTE_WRITE_STEPS = 25_000;
+    public static final int MAX_DISTRIBUTE_CALLS = 10;
+    // One hour in microseconds
+    public static final BigInteger DEAD_MARKET_CHECK_INTERVAL = BigInteger.valueOf(3_600_000_000L);
 
     public static final String continuousRewardsErrorMessage = "BalancedLoansPosition: The continuous rewards is " +
             "already active.";
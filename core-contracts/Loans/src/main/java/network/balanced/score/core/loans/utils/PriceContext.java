@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.utils;
+
+import network.balanced.score.core.loans.LoansImpl;
+import network.balanced.score.core.loans.asset.AssetRegistry;
+import score.Address;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import static network.balanced.score.core.loans.LoansVariables.*;
+import static network.balanced.score.core.loans.utils.LoansConstants.EXA;
+import static network.balanced.score.core.loans.utils.LoansConstants.POINTS;
+
+/**
+ * Caches asset prices for the duration of a single transaction, so every oracle price is fetched at most once. It
+ * also carries the {@link AssetRegistry} snapshot of the transaction, the current day and the standing thresholds. An
+ * instance must only live in local variables, never in a field of the contract.
+ */
+public class PriceContext {
+    private final AssetRegistry assets;
+    private final Map<Address, BigInteger> prices = new HashMap<>();
+    private final Map<Address, BigInteger> lastPrices = new HashMap<>();
+    private Integer day;
+    private BigInteger continuousRewardsDay;
+    private boolean continuousRewardsDayLoaded;
+    private BigInteger miningThreshold;
+    private BigInteger lockingThreshold;
+    private BigInteger liquidationThreshold;
+
+    public PriceContext() {
+        this(new AssetRegistry());
+    }
+
+    public PriceContext(AssetRegistry assets) {
+        this.assets = assets;
+    }
+
+    public AssetRegistry getAssets() {
+        return assets;
+    }
+
+    public BigInteger priceInLoop(String symbol) {
+        return priceInLoop(getAddress(symbol));
+    }
+
+    public BigInteger priceInLoop(Address token) {
+        BigInteger price = prices.get(token);
+        if (price == null) {
+            price = new Token(token).priceInLoop();
+            prices.put(token, price);
+        }
+
+        return price;
+    }
+
+    public BigInteger lastPriceInLoop(String symbol) {
+        Address token = getAddress(symbol);
+
+        // priceInLoop updates the last price of the token, so an already fetched price is also the last price.
+        BigInteger price = prices.get(token);
+        if (price != null) {
+            return price;
+        }
+
+        price = lastPrices.get(token);
+        if (price == null) {
+            price = new Token(token).lastPriceInLoop();
+            lastPrices.put(token, price);
+        }
+
+        return price;
+    }
+
+    public BigInteger getPrice(String symbol, boolean readOnly) {
+        if (readOnly) {
+            return lastPriceInLoop(symbol);
+        }
+
+        return priceInLoop(symbol);
+    }
+
+    public int getDay() {
+        if (day == null) {
+            day = LoansImpl._getDay().intValue();
+        }
+
+        return day;
+    }
+
+    /**
+     * @param day Day to check, -1 for the current day
+     * @return True if continuous rewards are not active yet on the given day
+     */
+    public boolean isBeforeContinuousRewardDay(int day) {
+        if (!continuousRewardsDayLoaded) {
+            continuousRewardsDay = continuousRewardDay.get();
+            continuousRewardsDayLoaded = true;
+        }
+
+        if (day == -1) {
+            day = getDay();
+        }
+
+        return continuousRewardsDay == null || BigInteger.valueOf(day).compareTo(continuousRewardsDay) < 0;
+    }
+
+    /**
+     * @return Mining ratio as a collateral to debt ratio scaled by EXA
+     */
+    public BigInteger getMiningThreshold() {
+        if (miningThreshold == null) {
+            miningThreshold = toThreshold(miningRatio.get());
+        }
+
+        return miningThreshold;
+    }
+
+    /**
+     * @return Locking ratio as a collateral to debt ratio scaled by EXA
+     */
+    public BigInteger getLockingThreshold() {
+        if (lockingThreshold == null) {
+            lockingThreshold = toThreshold(lockingRatio.get());
+        }
+
+        return lockingThreshold;
+    }
+
+    /**
+     * @return Liquidation ratio as a collateral to debt ratio scaled by EXA
+     */
+    public BigInteger getLiquidationThreshold() {
+        if (liquidationThreshold == null) {
+            liquidationThreshold = toThreshold(liquidationRatio.get());
+        }
+
+        return liquidationThreshold;
+    }
+
+    private static BigInteger toThreshold(BigInteger ratio) {
+        return ratio.multiply(EXA).divide(POINTS);
+    }
+
+    private Address getAddress(String symbol) {
+        return assets.getAddress(symbol);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import network.balanced.score.core.loans.mocks.bnUSD.bnUSDMintBurn;
+import network.balanced.score.lib.test.benchmark.BenchmarkReport;
+import network.balanced.score.lib.test.benchmark.CallSample;
+import network.balanced.score.lib.test.benchmark.ContractMeter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays loans scenarios and records the metered cost of each external method into
+ * {@code build/reports/benchmark/loans.json}. Run with {@code ./gradlew :Loans:benchmark}, optionally with
+ * {@code -PbenchmarkBaseline=<report dir>} to print the step difference against a previous run.
+ */
+@Tag("benchmark")
+@DisplayName("Loans Benchmark")
+class LoansBenchmarkTest extends LoansTestBase {
+    private static final BenchmarkReport report = new BenchmarkReport("loans");
+
+    private final ContractMeter meter = new ContractMeter();
+
+    private final BigInteger collateral = BigInteger.valueOf(10_000).multiply(EXA);
+    private final int loan = 1000;
+
+    @BeforeEach
+    public void setupContractsAndWallets() throws Exception {
+        super.setup();
+    }
+
+    @AfterEach
+    void closeMeter() {
+        meter.close();
+    }
+
+    @AfterAll
+    static void writeReport() throws IOException {
+        report.write();
+    }
+
+    @ParameterizedTest(name = "positions={0}, extraAssets={1}, batchSize={2}, continuous={3}")
+    @CsvSource({
+            "1, 0, 1, false",
+            "10, 0, 5, false",
+            "50, 0, 50, false",
+            "10, 2, 5, false",
+            "1, 0, 1, true",
+            "10, 0, 5, true",
+            "50, 0, 50, true",
+            "10, 2, 5, true"
+    })
+    void loansMethods(int positions, int extraAssets, int batchSize, boolean continuous) throws Exception {
+        Map<String, Object> scenario = Map.of(
+                "positions", positions,
+                "extraAssets", extraAssets,
+                "batchSize", batchSize,
+                "continuous", continuous
+        );
+
+        if (continuous) {
+            enableContinuousRewards();
+        }
+
+        for (int i = 0; i < extraAssets; i++) {
+            Score asset = sm.deploy(admin, bnUSDMintBurn.class, "Asset " + i, "ASSET" + i, tokenDecimals,
+                    initalaupplyTokens);
+            asset.invoke(admin, "setMinter", loans.getAddress());
+            loans.invoke(admin, "addAsset", asset.getAddress(), true, false);
+        }
+        loans.invoke(admin, "setRedeemBatchSize", batchSize);
+
+        List<Account> borrowers = new ArrayList<>();
+        for (int i = 0; i < positions; i++) {
+            Account borrower = sm.createAccount();
+            sicx.invoke(staking.account, "mintTo", borrower.getAddress(), collateral);
+            borrowers.add(borrower);
+        }
+
+        for (int i = 0; i < positions - 1; i++) {
+            takeLoanSICX(borrowers.get(i), collateral, loan);
+        }
+
+        Account borrower = borrowers.get(positions - 1);
+        record(scenario, "depositAndBorrow", () -> takeLoanSICX(borrower, collateral, loan));
+
+        BigInteger repayment = BigInteger.valueOf(100).multiply(EXA);
+        record(scenario, "returnAsset", () -> loans.invoke(borrower, "returnAsset", "bnUSD", repayment, true));
+
+        BigInteger withdrawal = BigInteger.valueOf(100).multiply(EXA);
+        record(scenario, "withdrawCollateral", () -> loans.invoke(borrower, "withdrawCollateral", withdrawal));
+
+        BigInteger rebalanceAmount = EXA;
+        mockSicxBnusdPrice(EXA);
+        mockSwap(bnusd, rebalanceAmount, rebalanceAmount);
+        record(scenario, "raisePrice", () -> loans.invoke(rebalancing, "raisePrice", rebalanceAmount));
+
+        mockSwap(sicx, rebalanceAmount, rebalanceAmount);
+        record(scenario, "lowerPrice", () -> loans.invoke(rebalancing, "lowerPrice", rebalanceAmount));
+
+        Account liquidator = sm.createAccount();
+        bnusd.invoke(admin, "setPrice", BigInteger.TEN.multiply(EXA));
+        record(scenario, "liquidate", () -> loans.invoke(liquidator, "liquidate", borrower.getAddress()));
+    }
+
+    private void record(Map<String, Object> scenario, String method, Runnable transaction) {
+        CallSample sample = meter.measure(method, transaction);
+        assertTrue(sample.getDbReads() > 0, method + " was not metered");
+        report.add(scenario, sample);
+    }
+}
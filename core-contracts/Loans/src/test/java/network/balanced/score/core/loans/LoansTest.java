@@ -18,20 +18,32 @@ package network.balanced.score.core.loans;
 
 import com.iconloop.score.test.Account;
 import network.balanced.score.core.loans.utils.LoansConstants.Standings;
+import network.balanced.score.lib.structs.RebalanceChange;
+import network.balanced.score.lib.utils.RebalanceChangeLog;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
+import org.mockito.ArgumentCaptor;
 import score.Address;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
 
+import static network.balanced.score.core.loans.utils.LoansConstants.MAX_SNAPSHOT_INDEX_BATCH;
+import static network.balanced.score.core.loans.utils.LoansConstants.MAX_SNAPSHOT_INDEX_GAP;
 import static network.balanced.score.core.loans.utils.LoansConstants.StandingsMap;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @DisplayName("Loans Tests")
 class LoansTest extends LoansTestBase {
@@ -61,6 +73,10 @@ class LoansTest extends LoansTestBase {
     @Test
     void getSetParameters() {
         loans.invoke(admin, "setRedeemBatchSize", 1);
+        loans.invoke(admin, "setMaxRedeemBatches", 12);
+        loans.invoke(admin, "setMaxDistributeCalls", 4);
+        loans.invoke(admin, "setPackedRebalanceLog", true);
+        loans.invoke(admin, "setPrecomputeBudget", 13);
         loans.invoke(admin, "setMaxRetirePercent", BigInteger.valueOf(2));
         governanceCall("setTimeOffset", BigInteger.valueOf(3));
         loans.invoke(admin, "setMinMiningDebt", BigInteger.valueOf(4));
@@ -86,6 +102,10 @@ class LoansTest extends LoansTestBase {
         assertEquals(dividends.getAddress(), params.get("dividends"));
 
         assertEquals(1, params.get("redeem batch size"));
+        assertEquals(12, params.get("max redeem batches"));
+        assertEquals(4, params.get("max distribute calls"));
+        assertEquals(true, params.get("packed rebalance log"));
+        assertEquals(13, params.get("precompute step budget"));
         assertEquals(BigInteger.valueOf(2), params.get("retire percent max"));
         assertEquals(BigInteger.valueOf(3), params.get("time offset"));
         assertEquals(BigInteger.valueOf(4), params.get("min mining debt"));
@@ -230,6 +250,33 @@ class LoansTest extends LoansTestBase {
         verifyStanding(Standings.LOCKED, account.getAddress());
     }
 
+    @Test
+    void checkDistributions_MultipleCalls() {
+        // Arrange
+        BigInteger day = (BigInteger) loans.call("getDay");
+        loans.invoke(admin, "setMaxDistributeCalls", 3);
+        when(dividends.mock.distribute()).thenReturn(false, true);
+        when(rewards.mock.distribute()).thenReturn(true);
+        clearInvocations(dividends.mock, rewards.mock);
+
+        // Act
+        loans.invoke(admin, "checkDistributions", day, true);
+
+        // Assert
+        verify(dividends.mock, times(2)).distribute();
+        verify(rewards.mock, never()).distribute();
+
+        // Act
+        loans.invoke(admin, "checkDistributions", day, false);
+
+        // Assert
+        verify(dividends.mock, times(2)).distribute();
+        verify(rewards.mock, times(1)).distribute();
+
+        Executable tooManyCalls = () -> loans.invoke(admin, "setMaxDistributeCalls", 11);
+        expectErrorMessage(tooManyCalls, "Max distribute calls must be between 1 and 10.");
+    }
+
     @Test
     void getBalanceAndSupply() {
         // Arrange
@@ -247,6 +294,42 @@ class LoansTest extends LoansTestBase {
         assertEquals(loan.add(expectedFee), balanceAndSupply.get("_totalSupply"));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void getTotalDebtsAndCollateralDeposits() {
+        // Arrange
+        Account accountZero = accounts.get(0);
+        Account accountOne = accounts.get(1);
+        BigInteger accountZeroCollateral = BigInteger.valueOf(2000).multiply(EXA);
+        BigInteger accountOneCollateral = BigInteger.valueOf(3000).multiply(EXA);
+        BigInteger accountZeroLoan = BigInteger.valueOf(200).multiply(EXA);
+        BigInteger accountOneLoan = BigInteger.valueOf(100).multiply(EXA);
+        BigInteger collateralToWithdraw = BigInteger.valueOf(100).multiply(EXA);
+        BigInteger totalDebt = accountZeroLoan.add(calculateFee(accountZeroLoan))
+                .add(accountOneLoan).add(calculateFee(accountOneLoan));
+
+        // Act
+        takeLoanICX(accountZero, "bnUSD", accountZeroCollateral, accountZeroLoan);
+        takeLoanICX(accountOne, "bnUSD", accountOneCollateral, accountOneLoan);
+        loans.invoke(accountZero, "withdrawCollateral", collateralToWithdraw);
+
+        // Assert
+        Executable incompleteTotals = () -> loans.call("getTotalCollateralDeposits");
+        expectErrorMessage(incompleteTotals, "Totals are incomplete until every position is migrated, 0 of 2 " +
+                "migrated.");
+
+        // Act
+        enableContinuousRewards();
+        loans.invoke(accountZero, "migrateBatch", 0, 10);
+
+        // Assert
+        Map<String, BigInteger> debts = (Map<String, BigInteger>) loans.call("getTotalDebts");
+        Map<String, BigInteger> deposits = (Map<String, BigInteger>) loans.call("getTotalCollateralDeposits");
+        assertEquals(totalDebt, debts.get("bnUSD"));
+        assertEquals(accountZeroCollateral.add(accountOneCollateral).subtract(collateralToWithdraw),
+                deposits.get("sICX"));
+    }
+
     @Test
     void getBalanceAndSupply_noPositition() {
         // Arrange
@@ -750,6 +833,73 @@ class LoansTest extends LoansTestBase {
         assertEquals(expectedLiquidationPool, bnusdAsset.get("liquidation_pool"));
     }
 
+    @Test
+    void deadMarket_flagReusedWithinInterval() {
+        // Arrange
+        liquidateIntoDeadMarketCandidate();
+
+        // Act
+        takeLoanICX(accounts.get(3), "bnUSD", BigInteger.valueOf(1000).multiply(EXA), BigInteger.valueOf(100).multiply(EXA));
+
+        // Assert
+        assertEquals(List.of(), loans.call("checkDeadMarkets"));
+    }
+
+    @Test
+    void deadMarket_reevaluatedAfterInterval() {
+        // Arrange
+        liquidateIntoDeadMarketCandidate();
+        sm.getBlock().increase(DAY / 12);
+
+        // Act
+        loans.invoke(accounts.get(3), "checkForNewDay");
+
+        // Assert
+        assertEquals(List.of("bnUSD"), loans.call("checkDeadMarkets"));
+        Executable borrow = () -> takeLoanICX(accounts.get(3), "bnUSD", BigInteger.valueOf(1000).multiply(EXA),
+                BigInteger.valueOf(100).multiply(EXA));
+        expectErrorMessage(borrow, "No new loans of bnUSD can be originated since it is in a dead market state.");
+    }
+
+    @Test
+    void deadMarket_badDebtChangeForcesCheck() {
+        // Arrange
+        Account liquidated = liquidateIntoDeadMarketCandidate();
+        sm.getBlock().increase(DAY / 12);
+        loans.invoke(accounts.get(3), "checkForNewDay");
+        assertEquals(List.of("bnUSD"), loans.call("checkDeadMarkets"));
+
+        // Act
+        loans.invoke(liquidated, "retireBadDebt", "bnUSD", BigInteger.valueOf(200).multiply(EXA));
+
+        // Assert
+        assertEquals(List.of(), loans.call("checkDeadMarkets"));
+        takeLoanICX(accounts.get(3), "bnUSD", BigInteger.valueOf(1000).multiply(EXA), BigInteger.valueOf(100).multiply(EXA));
+    }
+
+    /**
+     * Leaves bnUSD with a bad debt that is only covered while the bnUSD price is high. The price is then dropped, so
+     * the market is dead once it is evaluated again, while its stored flag is still clear.
+     */
+    private Account liquidateIntoDeadMarketCandidate() {
+        Account liquidated = accounts.get(0);
+        Account borrower = accounts.get(1);
+        Account liquidater = accounts.get(2);
+        bnusd.invoke(admin, "burnFrom", admin.getAddress(), bnusd.call("balanceOf", admin.getAddress()));
+        bnusd.invoke(admin, "burnFrom", dex.getAddress(), bnusd.call("balanceOf", dex.getAddress()));
+
+        BigInteger loan = BigInteger.valueOf(200).multiply(EXA);
+        takeLoanICX(liquidated, "bnUSD", BigInteger.valueOf(1000).multiply(EXA), loan);
+        takeLoanICX(borrower, "bnUSD", BigInteger.valueOf(10000).multiply(EXA), loan);
+
+        bnusd.invoke(admin, "setPrice", BigInteger.valueOf(4).multiply(EXA));
+        loans.invoke(liquidater, "liquidate", liquidated.getAddress());
+        assertEquals(List.of(), loans.call("checkDeadMarkets"));
+
+        bnusd.invoke(admin, "setPrice", EXA.divide(BigInteger.valueOf(100)));
+        return liquidated;
+    }
+
     @Test
     void retireBadDebt_UseReserve() {
         // Arrange
@@ -975,6 +1125,57 @@ class LoansTest extends LoansTestBase {
         verifyPosition(accounts.get(2).getAddress(), accountTwoCollateral.subtract(accountTwoExpectedCollateralSold), accountTwoDebt.subtract(accountTwoExpectedDebtRepaid));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void raisePrice_PackedRebalanceLog() {
+        // Arrange
+        loans.invoke(admin, "setPackedRebalanceLog", true);
+        BigInteger[] collaterals = {BigInteger.valueOf(10000).multiply(EXA), BigInteger.valueOf(20000).multiply(EXA)};
+        BigInteger[] loanAmounts = {BigInteger.valueOf(1000).multiply(EXA), BigInteger.valueOf(2000).multiply(EXA)};
+        BigInteger totalDebt = BigInteger.ZERO;
+        BigInteger[] debts = new BigInteger[2];
+        for (int i = 0; i < 2; i++) {
+            takeLoanICX(accounts.get(i), "bnUSD", collaterals[i], loanAmounts[i]);
+            debts[i] = loanAmounts[i].add(calculateFee(loanAmounts[i]));
+            totalDebt = totalDebt.add(debts[i]);
+        }
+
+        BigInteger rebalanceAmount = BigInteger.valueOf(100).multiply(EXA);
+        BigInteger expectedBnusdRecived = rebalanceAmount.multiply(BigInteger.TWO);
+        mockSicxBnusdPrice(EXA.divide(BigInteger.TWO));
+        mockSwap(bnusd, rebalanceAmount, expectedBnusdRecived);
+
+        // Act
+        loans.invoke(rebalancing, "raisePrice", rebalanceAmount);
+
+        // Assert
+        ArgumentCaptor<byte[]> changeLog = ArgumentCaptor.forClass(byte[].class);
+        verify(loansSpy).PackedRebalance(eq(rebalancing.getAddress()), eq("bnUSD"), changeLog.capture(),
+                eq(totalDebt));
+        verify(loansSpy, never()).Rebalance(any(Address.class), any(String.class), any(String.class),
+                any(BigInteger.class));
+
+        RebalanceChange[] changes = RebalanceChangeLog.decode(changeLog.getValue());
+        assertEquals(2, changes.length);
+        BigInteger remainingSicx = rebalanceAmount;
+        BigInteger remainingBnusd = expectedBnusdRecived;
+        BigInteger remainingDebt = totalDebt;
+        for (int i = 0; i < 2; i++) {
+            Map<String, Object> position = (Map<String, Object>) loans.call("getAccountPositions",
+                    accounts.get(i).getAddress());
+            BigInteger collateralSold = remainingSicx.multiply(debts[i]).divide(remainingDebt);
+            BigInteger debtRepaid = remainingBnusd.multiply(debts[i]).divide(remainingDebt);
+
+            assertEquals(position.get("pos_id"), changes[i].id);
+            assertEquals(debtRepaid.negate(), changes[i].debt);
+            assertEquals(collateralSold.negate(), changes[i].collateral);
+
+            remainingSicx = remainingSicx.subtract(collateralSold);
+            remainingBnusd = remainingBnusd.subtract(debtRepaid);
+            remainingDebt = remainingDebt.subtract(debts[i]);
+        }
+    }
+
     @Test
     void raisePrice_OverMaxRetirePercent() {
         // Arrange
@@ -1035,6 +1236,58 @@ class LoansTest extends LoansTestBase {
         verifyPosition(accounts.get(2).getAddress(), accountTwoCollateral.subtract(accountTwoExpectedCollateralSold), accountTwoDebt.subtract(accountTwoExpectedDebtRepaid));
     }
 
+    @Test
+    void raisePrice_MultipleRedeemBatches() {
+        // Arrange
+        BigInteger accountZeroCollateral = BigInteger.valueOf(10000).multiply(EXA);
+        BigInteger accountOneCollateral = BigInteger.valueOf(20000).multiply(EXA);
+        BigInteger accountTwoCollateral = BigInteger.valueOf(30000).multiply(EXA);
+        BigInteger accountZeroLoan = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger accountOneLoan = BigInteger.valueOf(2000).multiply(EXA);
+        BigInteger accountTwoLoan = BigInteger.valueOf(3000).multiply(EXA);
+        BigInteger accountZeroDebt = calculateFee(accountZeroLoan).add(accountZeroLoan);
+        BigInteger accountOneDebt = calculateFee(accountOneLoan).add(accountOneLoan);
+        BigInteger accountTwoDebt = calculateFee(accountTwoLoan).add(accountTwoLoan);
+
+        loans.invoke(admin, "setRedeemBatchSize", 1);
+        loans.invoke(admin, "setMaxRedeemBatches", 2);
+
+        takeLoanICX(accounts.get(0), "bnUSD", accountZeroCollateral, accountZeroLoan);
+        takeLoanICX(accounts.get(1), "bnUSD", accountOneCollateral, accountOneLoan);
+        takeLoanICX(accounts.get(2), "bnUSD", accountTwoCollateral, accountTwoLoan);
+
+        BigInteger totalTokenRequired = BigInteger.valueOf(10000).multiply(EXA);
+        BigInteger maxRetirePercent = (BigInteger) getParam("retire percent max");
+        BigInteger rate = EXA;
+        mockSicxBnusdPrice(rate);
+
+        BigInteger totalDebt = accountZeroDebt.add(accountOneDebt);
+        BigInteger rebalanceAmount = maxRetirePercent.multiply(totalDebt).multiply(EXA).divide(POINTS.multiply(rate));
+        mockSwap(bnusd, rebalanceAmount, rebalanceAmount);
+
+        // Act
+        loans.invoke(rebalancing, "raisePrice", totalTokenRequired);
+
+        // Assert
+        BigInteger remainingBnusd = rebalanceAmount;
+
+        BigInteger accountZeroExpectedCollateralSold = rebalanceAmount.multiply(accountZeroDebt).divide(totalDebt);
+        BigInteger accountZeroExpectedDebtRepaid = remainingBnusd.multiply(accountZeroDebt).divide(totalDebt);
+        verifyPosition(accounts.get(0).getAddress(), accountZeroCollateral.subtract(accountZeroExpectedCollateralSold),
+                accountZeroDebt.subtract(accountZeroExpectedDebtRepaid));
+
+        totalDebt = totalDebt.subtract(accountZeroDebt);
+        rebalanceAmount = rebalanceAmount.subtract(accountZeroExpectedCollateralSold);
+        remainingBnusd = remainingBnusd.subtract(accountZeroExpectedDebtRepaid);
+
+        BigInteger accountOneExpectedCollateralSold = rebalanceAmount.multiply(accountOneDebt).divide(totalDebt);
+        BigInteger accountOneExpectedDebtRepaid = remainingBnusd.multiply(accountOneDebt).divide(totalDebt);
+        verifyPosition(accounts.get(1).getAddress(), accountOneCollateral.subtract(accountOneExpectedCollateralSold),
+                accountOneDebt.subtract(accountOneExpectedDebtRepaid));
+
+        verifyPosition(accounts.get(2).getAddress(), accountTwoCollateral, accountTwoDebt);
+    }
+
     @Test
     void lowerPrice() {
         // Arrange
@@ -1517,4 +1770,185 @@ class LoansTest extends LoansTestBase {
         assertEquals(null, snapshotBatch2.get(accountOneAddress));
         assertEquals(null, snapshotBatch2.get(accountTwoAddress));
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getDataBatchColumns() {
+        // Arrange
+        Address accountZeroAddress = accounts.get(0).getAddress();
+        Address accountOneAddress = accounts.get(1).getAddress();
+        Address accountTwoAddress = accounts.get(2).getAddress();
+        BigInteger accountZeroLoan = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger accountOneLoan = BigInteger.valueOf(2000).multiply(EXA);
+        BigInteger accountTwoLoan = BigInteger.valueOf(3000).multiply(EXA);
+        BigInteger accountZeroDebt = accountZeroLoan.add(calculateFee(accountZeroLoan));
+        BigInteger accountOneDebt = accountOneLoan.add(calculateFee(accountOneLoan));
+        BigInteger accountTwoDebt = accountTwoLoan.add(calculateFee(accountTwoLoan));
+
+        takeLoanICX(accounts.get(0), "bnUSD", BigInteger.valueOf(10000).multiply(EXA), accountZeroLoan);
+        takeLoanICX(accounts.get(1), "bnUSD", BigInteger.valueOf(20000).multiply(EXA), accountOneLoan);
+        takeLoanICX(accounts.get(2), "bnUSD", BigInteger.valueOf(30000).multiply(EXA), accountTwoLoan);
+
+        BigInteger day = (BigInteger) loans.call("getDay");
+        loans.invoke(rewards.account, "precompute", day, BigInteger.valueOf(0));
+        loans.invoke(rewards.account, "precompute", day, BigInteger.valueOf(3));
+        sm.getBlock().increase(DAY);
+
+        // Act
+        Map<String, Object> firstBatch = (Map<String, Object>) loans.call("getDataBatchColumns", "loans", day, 2, 0);
+        Map<String, Object> lastBatch = (Map<String, Object>) loans.call("getDataBatchColumns", "loans", day, 2,
+                firstBatch.get("next_cursor"));
+
+        // Assert
+        assertEquals(List.of(accountZeroAddress, accountOneAddress), firstBatch.get("addresses"));
+        assertEquals(List.of(accountZeroDebt, accountOneDebt), firstBatch.get("values"));
+        assertEquals(2, firstBatch.get("next_cursor"));
+
+        assertEquals(List.of(accountTwoAddress), lastBatch.get("addresses"));
+        assertEquals(List.of(accountTwoDebt), lastBatch.get("values"));
+        assertEquals(-1, lastBatch.get("next_cursor"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getPositionsBatch() {
+        // Arrange
+        Address accountZeroAddress = accounts.get(0).getAddress();
+        Address accountOneAddress = accounts.get(1).getAddress();
+        Address accountTwoAddress = accounts.get(2).getAddress();
+        BigInteger accountZeroCollateral = BigInteger.valueOf(10000).multiply(EXA);
+        BigInteger accountOneCollateral = BigInteger.valueOf(20000).multiply(EXA);
+        BigInteger accountTwoCollateral = BigInteger.valueOf(30000).multiply(EXA);
+        BigInteger accountZeroLoan = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger accountOneLoan = BigInteger.valueOf(2000).multiply(EXA);
+        BigInteger accountTwoLoan = BigInteger.valueOf(3000).multiply(EXA);
+
+        takeLoanICX(accounts.get(0), "bnUSD", accountZeroCollateral, accountZeroLoan);
+        takeLoanICX(accounts.get(1), "bnUSD", accountOneCollateral, accountOneLoan);
+        takeLoanICX(accounts.get(2), "bnUSD", accountTwoCollateral, accountTwoLoan);
+
+        // Act
+        Map<String, Object> firstBatch = (Map<String, Object>) loans.call("getPositionsBatch", 1, 2);
+        Map<String, Object> lastBatch = (Map<String, Object>) loans.call("getPositionsBatch",
+                firstBatch.get("next_id"), 2);
+
+        // Assert
+        Map<String, List<BigInteger>> collateral = (Map<String, List<BigInteger>>) firstBatch.get("collateral");
+        Map<String, List<BigInteger>> debt = (Map<String, List<BigInteger>>) firstBatch.get("debt");
+        assertEquals(List.of(1, 2), firstBatch.get("ids"));
+        assertEquals(List.of(accountZeroAddress, accountOneAddress), firstBatch.get("addresses"));
+        assertEquals(List.of(accountZeroCollateral, accountOneCollateral), collateral.get("sICX"));
+        assertEquals(List.of(accountZeroLoan.add(calculateFee(accountZeroLoan)),
+                accountOneLoan.add(calculateFee(accountOneLoan))), debt.get("bnUSD"));
+        assertEquals(3, firstBatch.get("next_id"));
+
+        collateral = (Map<String, List<BigInteger>>) lastBatch.get("collateral");
+        debt = (Map<String, List<BigInteger>>) lastBatch.get("debt");
+        assertEquals(List.of(3), lastBatch.get("ids"));
+        assertEquals(List.of(accountTwoAddress), lastBatch.get("addresses"));
+        assertEquals(List.of(accountTwoCollateral), collateral.get("sICX"));
+        assertEquals(List.of(accountTwoLoan.add(calculateFee(accountTwoLoan))), debt.get("bnUSD"));
+        assertEquals(-1, lastBatch.get("next_id"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getSnapshot_DaysWithoutSnapshot() {
+        // Arrange
+        Account account = accounts.get(0);
+        BigInteger collateral = BigInteger.valueOf(10000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(1000).multiply(EXA);
+        takeLoanICX(account, "bnUSD", collateral, loan);
+        BigInteger day = (BigInteger) loans.call("getDay");
+        int positionId = (int) loans.call("borrowerCount");
+
+        sm.getBlock().increase(DAY);
+        sm.getBlock().increase(DAY);
+        sm.getBlock().increase(DAY);
+        loans.invoke(admin, "checkForNewDay");
+
+        // Act
+        Map<String, Object> loanDaySnapshot = (Map<String, Object>) loans.call("getSnapshot", day);
+        Map<String, Object> gapSnapshot = (Map<String, Object>) loans.call("getSnapshot", day.add(BigInteger.ONE));
+        Map<String, Object> newSnapshot = (Map<String, Object>) loans.call("getSnapshot", day.add(BigInteger.valueOf(3)));
+        Map<String, Object> position = (Map<String, Object>) loans.call("getPositionByIndex", positionId,
+                day.add(BigInteger.TWO));
+
+        // Assert
+        assertEquals(loanDaySnapshot.get("snap_day"), gapSnapshot.get("snap_day"));
+        assertEquals(day.intValue() + 3, newSnapshot.get("snap_day"));
+        assertEquals(day.intValue(), position.get("snap_id"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void indexSnapshotDays() {
+        // Arrange
+        BigInteger day = (BigInteger) loans.call("getDay");
+        Map<String, Object> daySnapshot = (Map<String, Object>) loans.call("getSnapshot", day);
+        int gap = MAX_SNAPSHOT_INDEX_GAP + 5;
+        for (int i = 0; i < gap; i++) {
+            sm.getBlock().increase(DAY);
+        }
+        loans.invoke(admin, "checkForNewDay");
+        int firstDay = (int) loans.call("getSnapshotIndexCursor");
+
+        // Act & Assert
+        Executable batchTooLarge = () -> loans.invoke(accounts.get(0), "indexSnapshotDays",
+                MAX_SNAPSHOT_INDEX_BATCH + 1);
+        expectErrorMessage(batchTooLarge, "Snapshot index batch size must be between 1 and " +
+                MAX_SNAPSHOT_INDEX_BATCH + ".");
+
+        loans.invoke(accounts.get(0), "indexSnapshotDays", 2);
+        assertEquals(firstDay + 2, loans.call("getSnapshotIndexCursor"));
+
+        loans.invoke(accounts.get(0), "indexSnapshotDays", MAX_SNAPSHOT_INDEX_BATCH);
+        assertEquals(day.intValue() + gap + 1, loans.call("getSnapshotIndexCursor"));
+
+        loans.invoke(accounts.get(0), "indexSnapshotDays", 1);
+        assertEquals(day.intValue() + gap + 1, loans.call("getSnapshotIndexCursor"));
+
+        Map<String, Object> gapSnapshot = (Map<String, Object>) loans.call("getSnapshot", day.add(BigInteger.ONE));
+        Map<String, Object> newSnapshot = (Map<String, Object>) loans.call("getSnapshot",
+                day.add(BigInteger.valueOf(gap)));
+        assertEquals(daySnapshot.get("snap_day"), gapSnapshot.get("snap_day"));
+        assertEquals(day.intValue() + gap, newSnapshot.get("snap_day"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void precompute_MeasuredBatchSize() {
+        // Arrange
+        BigInteger collateral = BigInteger.valueOf(10000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(1000).multiply(EXA);
+        takeLoanICX(accounts.get(0), "bnUSD", collateral, loan);
+        takeLoanICX(accounts.get(1), "bnUSD", collateral, loan);
+        takeLoanICX(accounts.get(2), "bnUSD", collateral, loan);
+
+        BigInteger day = (BigInteger) loans.call("getDay");
+        loans.invoke(rewards.account, "precompute", day, BigInteger.valueOf(0));
+
+        // Act
+        loans.invoke(admin, "setPrecomputeBudget", 1);
+        loans.invoke(rewards.account, "precompute", day, BigInteger.ONE);
+
+        // Assert
+        Map<String, Object> params = (Map<String, Object>) loans.call("getParameters");
+        int cost = (int) params.get("precompute steps per position");
+        assertTrue(cost > 0);
+        assertEquals(BigInteger.ONE, loans.call("getDataCount", day));
+
+        // Act
+        loans.invoke(rewards.account, "precompute", day, BigInteger.TEN);
+
+        // Assert
+        assertEquals(BigInteger.TWO, loans.call("getDataCount", day));
+
+        // Act
+        loans.invoke(admin, "setPrecomputeBudget", cost * 10);
+        loans.invoke(rewards.account, "precompute", day, BigInteger.ONE);
+
+        // Assert
+        assertEquals(BigInteger.valueOf(3), loans.call("getDataCount", day));
+    }
+}
@@ -18,12 +18,14 @@ package network.balanced.score.core.loans;
 
 import com.iconloop.score.test.Account;
 import network.balanced.score.lib.structs.RewardsDataEntry;
+import score.Address;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -109,6 +111,92 @@ class LoansTestContinuousRewards extends LoansTestBase {
         assertTrue((boolean) loans.call("hasDebt", account.getAddress()));
     }
 
+    @Test
+    void migrateBatch() {
+        // Arrange
+        governanceCall("setContinuousRewardsDay", BigInteger.valueOf(100000));
+        Account firstAccount = accounts.get(0);
+        Account secondAccount = accounts.get(1);
+        BigInteger collateral = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(100).multiply(EXA);
+        BigInteger expectedDebt = loan.add(calculateFee(loan));
+
+        takeLoanICX(firstAccount, "bnUSD", collateral, loan);
+        takeLoanICX(secondAccount, "bnUSD", collateral, loan);
+
+        Executable beforeContinuousRewards = () -> loans.invoke(firstAccount, "migrateBatch", 0, 1);
+        expectErrorMessage(beforeContinuousRewards, "Positions can only be migrated once continuous rewards are " +
+                "active.");
+
+        enableContinuousRewards();
+        Executable tooLargeBatch = () -> loans.invoke(firstAccount, "migrateBatch", 0, 51);
+        expectErrorMessage(tooLargeBatch, "Migration batch size must be between 1 and 50.");
+
+        // Act
+        loans.invoke(firstAccount, "migrateBatch", 0, 1);
+
+        // Assert
+        assertEquals(1, loans.call("getMigrationCursor"));
+
+        // Act
+        loans.invoke(secondAccount, "migrateBatch", 0, 10);
+
+        // Assert
+        assertEquals(2, loans.call("getMigrationCursor"));
+        verifyPosition(firstAccount.getAddress(), collateral, expectedDebt);
+        verifyPosition(secondAccount.getAddress(), collateral, expectedDebt);
+        verifyTotalDebt(expectedDebt.multiply(BigInteger.TWO));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void migrateBatch_countsCollateralOnce() {
+        // Arrange
+        governanceCall("setContinuousRewardsDay", BigInteger.valueOf(100000));
+        Account firstAccount = accounts.get(0);
+        Account secondAccount = accounts.get(1);
+        BigInteger collateral = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(100).multiply(EXA);
+        BigInteger collateralToWithdraw = BigInteger.valueOf(100).multiply(EXA);
+
+        takeLoanICX(firstAccount, "bnUSD", collateral, loan);
+        takeLoanICX(secondAccount, "bnUSD", collateral, loan);
+        enableContinuousRewards();
+
+        // Act
+        loans.invoke(firstAccount, "migrateBatch", 1, 2);
+        loans.invoke(firstAccount, "migrateBatch", 1, 2);
+        loans.invoke(firstAccount, "withdrawCollateral", collateralToWithdraw);
+
+        // Assert
+        Map<String, BigInteger> deposits = (Map<String, BigInteger>) loans.call("getTotalCollateralDeposits");
+        assertEquals(collateral.multiply(BigInteger.TWO).subtract(collateralToWithdraw), deposits.get("sICX"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void migrateBatch_indexesAtRiskPositions() {
+        // Arrange
+        governanceCall("setContinuousRewardsDay", BigInteger.valueOf(100000));
+        Account riskyAccount = accounts.get(0);
+        Account safeAccount = accounts.get(1);
+        BigInteger loan = BigInteger.valueOf(100).multiply(EXA);
+
+        takeLoanICX(riskyAccount, "bnUSD", BigInteger.valueOf(1000).multiply(EXA), loan);
+        takeLoanICX(safeAccount, "bnUSD", BigInteger.valueOf(10000).multiply(EXA), loan);
+        enableContinuousRewards();
+
+        // Act
+        loans.invoke(riskyAccount, "migrateBatch", 1, 2);
+
+        // Assert
+        List<Address> atRisk = (List<Address>) loans.call("getAtRiskPositions", EXA.divide(BigInteger.TEN), 0);
+        assertEquals(List.of(riskyAccount.getAddress()), atRisk);
+
+        atRisk = (List<Address>) loans.call("getAtRiskPositions", EXA.divide(BigInteger.valueOf(100)), 0);
+        assertEquals(List.of(riskyAccount.getAddress(), safeAccount.getAddress()), atRisk);
+    }
+
     @Test
     void migrateUserData_ChangePosition_beforeMigration() {
         // Arrange
@@ -412,4 +500,80 @@ class LoansTestContinuousRewards extends LoansTestBase {
         verify(rewards.mock).updateRewardsData("Loans", BigInteger.ZERO, account.getAddress(), BigInteger.ZERO);
         verify(rewards.mock).updateRewardsData("Loans", loan.add(expectedFee), account.getAddress(), loan.add(expectedFee));
     }
-}
\ No newline at end of file
+
+    @Test
+    void liquidateBatch() {
+        // Arrange
+        Account accountZero = accounts.get(0);
+        Account accountOne = accounts.get(1);
+        Account safeAccount = accounts.get(2);
+        Account liquidater = sm.createAccount();
+        BigInteger collateral = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(200).multiply(EXA);
+        BigInteger safeLoan = BigInteger.valueOf(100).multiply(EXA);
+        BigInteger debt = loan.add(calculateFee(loan));
+        BigInteger safeDebt = safeLoan.add(calculateFee(safeLoan));
+
+        BigInteger liquidationReward = (BigInteger) getParam("liquidation reward");
+        BigInteger expectedReward = collateral.multiply(liquidationReward).divide(POINTS);
+
+        takeLoanICX(accountZero, "bnUSD", collateral, loan);
+        takeLoanICX(accountOne, "bnUSD", collateral, loan);
+        takeLoanICX(safeAccount, "bnUSD", collateral, safeLoan);
+
+        BigInteger newPrice = BigInteger.TEN.pow(18).multiply(BigInteger.valueOf(4));
+        bnusd.invoke(admin, "setPrice", newPrice);
+
+        // Act
+        Address[] owners = new Address[]{accountZero.getAddress(), accountOne.getAddress(),
+                safeAccount.getAddress(), sm.createAccount().getAddress()};
+        loans.invoke(liquidater, "liquidateBatch", (Object) owners);
+
+        // Assert
+        BigInteger liquidaterBalance = (BigInteger) sicx.call("balanceOf", liquidater.getAddress());
+        assertEquals(expectedReward.multiply(BigInteger.TWO), liquidaterBalance);
+        verifyPosition(accountZero.getAddress(), BigInteger.ZERO, BigInteger.ZERO);
+        verifyPosition(accountOne.getAddress(), BigInteger.ZERO, BigInteger.ZERO);
+        verifyPosition(safeAccount.getAddress(), collateral, safeDebt);
+
+        Map<String, Object> bnusdAsset = ((Map<String, Map<String, Object>>)loans.call("getAvailableAssets")).get("bnUSD");
+        assertEquals(debt.multiply(BigInteger.TWO), bnusdAsset.get("bad_debt"));
+        assertEquals(collateral.subtract(expectedReward).multiply(BigInteger.TWO), bnusdAsset.get("liquidation_pool"));
+
+        verifyTotalDebt(safeDebt);
+        verify(rewards.mock).updateBatchRewardsData(eq("Loans"), eq(debt.multiply(BigInteger.TWO).add(safeDebt)),
+                argThat(entries -> entries.length == 2 && entries[0]._user.equals(accountZero.getAddress()) &&
+                        entries[1]._user.equals(accountOne.getAddress()) && entries[0]._balance.equals(debt) &&
+                        entries[1]._balance.equals(debt)));
+    }
+
+    @Test
+    void getAtRiskPositions() {
+        // Arrange
+        Account riskyAccount = accounts.get(0);
+        Account safeAccount = accounts.get(1);
+        BigInteger loan = BigInteger.valueOf(100).multiply(EXA);
+        takeLoanICX(riskyAccount, "bnUSD", BigInteger.valueOf(1000).multiply(EXA), loan);
+        takeLoanICX(safeAccount, "bnUSD", BigInteger.valueOf(10000).multiply(EXA), loan);
+
+        // Act & Assert
+        List<Address> atRisk = (List<Address>) loans.call("getAtRiskPositions", EXA, 0);
+        assertEquals(0, atRisk.size());
+
+        atRisk = (List<Address>) loans.call("getAtRiskPositions", EXA.divide(BigInteger.TEN), 0);
+        assertEquals(List.of(riskyAccount.getAddress()), atRisk);
+
+        atRisk = (List<Address>) loans.call("getAtRiskPositions", EXA.divide(BigInteger.valueOf(100)), 0);
+        assertEquals(List.of(riskyAccount.getAddress(), safeAccount.getAddress()), atRisk);
+
+        atRisk = (List<Address>) loans.call("getAtRiskPositions", EXA.divide(BigInteger.valueOf(100)), 1);
+        assertEquals(List.of(riskyAccount.getAddress()), atRisk);
+
+        // Act
+        loans.invoke(riskyAccount, "returnAsset", "bnUSD", loan, true);
+
+        // Assert
+        atRisk = (List<Address>) loans.call("getAtRiskPositions", EXA.divide(BigInteger.valueOf(100)), 0);
+        assertEquals(List.of(safeAccount.getAddress()), atRisk);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.linkedlist;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import network.balanced.score.lib.test.UnitTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import score.Context;
+import scorex.util.ArrayList;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LinkedListDBTest extends UnitTest {
+
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+
+    private Score dummyScore;
+
+    public static class DummyScore {
+
+        public DummyScore() {
+
+        }
+
+        // Every call reads the list from storage, so no node survives in the cache of a previous call
+        private LinkedListDB getList() {
+            return new LinkedListDB("rotate_test");
+        }
+
+        public void append(int[] ids) {
+            LinkedListDB list = getList();
+            for (int id : ids) {
+                list.append(BigInteger.valueOf(id), id);
+            }
+        }
+
+        public void rotate(int k) {
+            getList().rotate(k);
+        }
+
+        public int getHeadId() {
+            return getList().getHeadId();
+        }
+
+        public int getTailId() {
+            return getList().getTailId();
+        }
+
+        public List<Integer> getOrder() {
+            List<Integer> order = new ArrayList<>();
+            LinkedListIterator iterator = getList().iterator();
+            while (iterator.hasNext()) {
+                int id = iterator.next();
+                Context.require(iterator.getValue().intValue() == id, "Node value moved");
+                order.add(id);
+            }
+            return order;
+        }
+
+        public List<Integer> getReverseOrder() {
+            List<Integer> order = new ArrayList<>();
+            LinkedListDB list = getList();
+            int id = list.getTailId();
+            while (id != 0) {
+                order.add(id);
+                id = list.getNode(id).getPrev();
+            }
+            return order;
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        dummyScore = sm.deploy(owner, DummyScore.class);
+    }
+
+    private void verifyOrder(Integer... expected) {
+        Integer[] reversed = new Integer[expected.length];
+        for (int i = 0; i < expected.length; i++) {
+            reversed[i] = expected[expected.length - 1 - i];
+        }
+
+        assertEquals(expected[0], dummyScore.call("getHeadId"));
+        assertEquals(expected[expected.length - 1], dummyScore.call("getTailId"));
+        assertEquals(List.of(expected), dummyScore.call("getOrder"));
+        assertEquals(List.of(reversed), dummyScore.call("getReverseOrder"));
+    }
+
+    @Test
+    void rotate_zero() {
+        dummyScore.invoke(owner, "append", (Object) new int[]{1, 2, 3, 4});
+
+        dummyScore.invoke(owner, "rotate", 0);
+
+        verifyOrder(1, 2, 3, 4);
+    }
+
+    @Test
+    void rotate_one() {
+        dummyScore.invoke(owner, "append", (Object) new int[]{1, 2, 3, 4});
+
+        dummyScore.invoke(owner, "rotate", 1);
+
+        verifyOrder(2, 3, 4, 1);
+    }
+
+    @Test
+    void rotate_sizeMinusOne() {
+        dummyScore.invoke(owner, "append", (Object) new int[]{1, 2, 3, 4});
+
+        dummyScore.invoke(owner, "rotate", 3);
+
+        verifyOrder(4, 1, 2, 3);
+    }
+
+    @Test
+    void rotate_size() {
+        dummyScore.invoke(owner, "append", (Object) new int[]{1, 2, 3, 4});
+
+        dummyScore.invoke(owner, "rotate", 4);
+
+        verifyOrder(1, 2, 3, 4);
+    }
+
+    @Test
+    void rotate_moreThanSize() {
+        dummyScore.invoke(owner, "append", (Object) new int[]{1, 2, 3, 4});
+
+        dummyScore.invoke(owner, "rotate", 6);
+
+        verifyOrder(3, 4, 1, 2);
+    }
+
+    @Test
+    void rotate_repeated() {
+        dummyScore.invoke(owner, "append", (Object) new int[]{1, 2, 3, 4});
+
+        dummyScore.invoke(owner, "rotate", 1);
+        dummyScore.invoke(owner, "rotate", 2);
+
+        verifyOrder(4, 1, 2, 3);
+    }
+
+    @Test
+    void rotate_singleNode() {
+        dummyScore.invoke(owner, "append", (Object) new int[]{7});
+
+        dummyScore.invoke(owner, "rotate", 1);
+        verifyOrder(7);
+
+        dummyScore.invoke(owner, "rotate", 5);
+        verifyOrder(7);
+    }
+
+    @Test
+    void rotate_twoNodes() {
+        dummyScore.invoke(owner, "append", (Object) new int[]{7, 8});
+
+        dummyScore.invoke(owner, "rotate", 1);
+        verifyOrder(8, 7);
+
+        dummyScore.invoke(owner, "rotate", 3);
+        verifyOrder(7, 8);
+
+        dummyScore.invoke(owner, "rotate", 2);
+        verifyOrder(7, 8);
+    }
+
+    @Test
+    void rotate_emptyList() {
+        Executable rotateEmpty = () -> dummyScore.invoke(owner, "rotate", 1);
+        expectErrorMessage(rotateEmpty, "No data in the list");
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.positions;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import network.balanced.score.lib.test.UnitTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PositionBalancesTest extends UnitTest {
+
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private static final BigInteger EXA = BigInteger.TEN.pow(18);
+
+    private static Score dummyScore;
+
+    public static class DummyScore {
+
+        public DummyScore() {
+
+        }
+
+        public byte[] encode(String[] symbols, BigInteger[] collateral, BigInteger[] loans, boolean[] migrated) {
+            PositionBalances balances = new PositionBalances();
+            for (int i = 0; i < symbols.length; i++) {
+                balances.setCollateral(symbols[i], collateral[i]);
+                balances.setLoan(symbols[i], loans[i]);
+                if (migrated[i]) {
+                    balances.setMigrated(symbols[i]);
+                }
+            }
+
+            return balances.toBytes();
+        }
+
+        public byte[] reencode(byte[] record) {
+            return PositionBalances.fromBytes(record).toBytes();
+        }
+
+        public Map<String, Object> decode(byte[] record, String symbol) {
+            PositionBalances balances = PositionBalances.fromBytes(record);
+            return Map.of("migrated", balances.isMigrated(symbol), "collateral", balances.getCollateral(symbol),
+                    "loan", balances.getLoan(symbol));
+        }
+    }
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        dummyScore = sm.deploy(owner, DummyScore.class);
+    }
+
+    private byte[] encode(String[] symbols, BigInteger[] collateral, BigInteger[] loans, boolean[] migrated) {
+        return (byte[]) dummyScore.call("encode", symbols, collateral, loans, migrated);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> decode(byte[] record, String symbol) {
+        return (Map<String, Object>) dummyScore.call("decode", record, symbol);
+    }
+
+    @Test
+    void roundTrip_severalSymbols() {
+        BigInteger sicxCollateral = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger bnusdLoan = BigInteger.valueOf(200).multiply(EXA);
+        BigInteger ethLoan = BigInteger.valueOf(3).multiply(EXA).negate();
+        byte[] record = encode(new String[]{"sICX", "bnUSD", "ETH"},
+                new BigInteger[]{sicxCollateral, null, null},
+                new BigInteger[]{null, bnusdLoan, ethLoan},
+                new boolean[]{true, true, false});
+
+        assertEquals(PositionBalances.VERSION, record[0]);
+        assertEquals(3, record[1]);
+        assertEquals(Map.of("migrated", true, "collateral", sicxCollateral, "loan", BigInteger.ZERO),
+                decode(record, "sICX"));
+        assertEquals(Map.of("migrated", true, "collateral", BigInteger.ZERO, "loan", bnusdLoan),
+                decode(record, "bnUSD"));
+        assertEquals(Map.of("migrated", false, "collateral", BigInteger.ZERO, "loan", ethLoan),
+                decode(record, "ETH"));
+        assertEquals(Map.of("migrated", false, "collateral", BigInteger.ZERO, "loan", BigInteger.ZERO),
+                decode(record, "BTC"));
+        assertArrayEquals(record, (byte[]) dummyScore.call("reencode", record));
+    }
+
+    @Test
+    void roundTrip_unsetAndZeroBalances() {
+        byte[] unset = encode(new String[]{"sICX"}, new BigInteger[]{null}, new BigInteger[]{null},
+                new boolean[]{true});
+        byte[] zero = encode(new String[]{"sICX"}, new BigInteger[]{BigInteger.ZERO},
+                new BigInteger[]{BigInteger.ZERO}, new boolean[]{true});
+
+        // An unset balance has no bytes, a zero balance has a single zero byte
+        assertEquals(unset.length + 2, zero.length);
+        assertEquals(decode(unset, "sICX"), decode(zero, "sICX"));
+        assertArrayEquals(unset, (byte[]) dummyScore.call("reencode", unset));
+        assertArrayEquals(zero, (byte[]) dummyScore.call("reencode", zero));
+    }
+
+    @Test
+    void fromBytes_unknownVersion() {
+        byte[] record = encode(new String[]{"sICX"}, new BigInteger[]{EXA}, new BigInteger[]{null},
+                new boolean[]{true});
+        record[0] = PositionBalances.VERSION + 1;
+
+        Executable decodeUnknownVersion = () -> decode(record, "sICX");
+        expectErrorMessage(decodeUnknownVersion, "Unsupported position record version " + record[0]);
+    }
+
+    @Test
+    void toBytes_lengthLimits() {
+        String longestSymbol = "a".repeat(255);
+        BigInteger largestAmount = BigInteger.ONE.shiftLeft(8 * 255 - 1).subtract(BigInteger.ONE);
+        byte[] record = encode(new String[]{longestSymbol}, new BigInteger[]{largestAmount},
+                new BigInteger[]{largestAmount.negate()}, new boolean[]{true});
+        assertEquals(Map.of("migrated", true, "collateral", largestAmount, "loan", largestAmount.negate()),
+                decode(record, longestSymbol));
+
+        Executable symbolTooLong = () -> encode(new String[]{longestSymbol + "a"}, new BigInteger[]{null},
+                new BigInteger[]{null}, new boolean[]{true});
+        expectErrorMessage(symbolTooLong, "Position record fields can not be longer than 255 bytes.");
+
+        Executable amountTooLong = () -> encode(new String[]{"sICX"},
+                new BigInteger[]{largestAmount.add(BigInteger.ONE)}, new BigInteger[]{null}, new boolean[]{true});
+        expectErrorMessage(amountTooLong, "Position record fields can not be longer than 255 bytes.");
+
+        int count = 256;
+        String[] symbols = new String[count];
+        for (int i = 0; i < count; i++) {
+            symbols[i] = "T" + i;
+        }
+        Executable tooManyAssets = () -> encode(symbols, new BigInteger[count], new BigInteger[count],
+                new boolean[count]);
+        expectErrorMessage(tooManyAssets, "Position record can not hold more than 255 assets.");
+    }
+}
@@ -18,9 +18,11 @@ package network.balanced.score.core.rewards;
 
 import network.balanced.score.lib.interfaces.DataSourceScoreInterface;
 import score.*;
+import scorex.util.ArrayList;
 import scorex.util.HashMap;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
 
 import static network.balanced.score.core.rewards.utils.Check.continuousRewardsActive;
@@ -34,6 +36,8 @@ public class DataSourceImpl {
     private final BranchDB<String, VarDB<BigInteger>> day = Context.newBranchDB("day", BigInteger.class);
     private final BranchDB<String, VarDB<Boolean>> precomp = Context.newBranchDB("precomp", Boolean.class);
     private final BranchDB<String, VarDB<Integer>> offset = Context.newBranchDB("offset", Integer.class);
+    private final BranchDB<String, VarDB<Boolean>> columnarBatch = Context.newBranchDB("columnar_batch",
+            Boolean.class);
     private final BranchDB<String, DictDB<BigInteger, BigInteger>> totalValue = Context.newBranchDB("total_value",
             BigInteger.class);
     private final BranchDB<String, DictDB<BigInteger, BigInteger>> totalDist = Context.newBranchDB("total_dist",
@@ -87,6 +91,14 @@ public class DataSourceImpl {
         return offset.at(dbKey).getOrDefault(0);
     }
 
+    public boolean getColumnarBatch() {
+        return columnarBatch.at(dbKey).getOrDefault(false);
+    }
+
+    public void setColumnarBatch(boolean columnarBatch) {
+        this.columnarBatch.at(dbKey).set(columnarBatch);
+    }
+
     public BigInteger getTotalValue(BigInteger day) {
         return totalValue.at(dbKey).getOrDefault(day, BigInteger.ZERO);
     }
@@ -231,6 +243,7 @@ public class DataSourceImpl {
         sourceData.put("dist_percent", getDistPercent());
         sourceData.put("precomp", getPrecomp());
         sourceData.put("offset", getOffset());
+        sourceData.put("columnar_batch", getColumnarBatch());
         sourceData.put("total_value", getTotalValue(day));
         sourceData.put("total_dist", getTotalDist(day));
 
@@ -271,13 +284,49 @@ public class DataSourceImpl {
         }
 
         int offset = this.getOffset();
+        if (getColumnarBatch()) {
+            Map<String, Object> dataBatch = (Map<String, Object>) RewardsImpl.call(getContractAddress(),
+                    "getDataBatchColumns", name, day, batchSize, offset);
+            List<Object> addresses = (List<Object>) dataBatch.get("addresses");
+            List<BigInteger> values = (List<BigInteger>) dataBatch.get("values");
+            int nextCursor = ((Number) dataBatch.get("next_cursor")).intValue();
+
+            distributeBatch(name, day, addresses, values);
+            if (nextCursor == -1) {
+                completeDay(day);
+            } else {
+                this.offset.at(dbKey).set(nextCursor);
+            }
+            return;
+        }
+
         Map<String, BigInteger> dataBatch = (Map<String, BigInteger>) RewardsImpl.call(getContractAddress(), "getDataBatch",
                 name, day.intValue(), batchSize, offset);
         this.offset.at(dbKey).set(offset + batchSize);
         if (dataBatch.isEmpty()) {
-            this.day.at(dbKey).set(day.add(BigInteger.ONE));
-            this.offset.at(dbKey).set(0);
-            this.precomp.at(dbKey).set(false);
+            completeDay(day);
+            return;
+        }
+
+        List<Object> addresses = new ArrayList<>(dataBatch.size());
+        List<BigInteger> values = new ArrayList<>(dataBatch.size());
+        for (Map.Entry<String, BigInteger> entry : dataBatch.entrySet()) {
+            addresses.add(entry.getKey());
+            values.add(entry.getValue());
+        }
+
+        distributeBatch(name, day, addresses, values);
+    }
+
+    private void completeDay(BigInteger day) {
+        this.day.at(dbKey).set(day.add(BigInteger.ONE));
+        this.offset.at(dbKey).set(0);
+        this.precomp.at(dbKey).set(false);
+    }
+
+    private void distributeBatch(String name, BigInteger day, List<Object> addresses, List<BigInteger> values) {
+        int batchLength = addresses.size();
+        if (batchLength == 0) {
             return;
         }
 
@@ -286,14 +335,14 @@ public class DataSourceImpl {
         BigInteger originalShares = shares;
 
         BigInteger batchSum = BigInteger.ZERO;
-        for (Map.Entry<String, BigInteger> entry : dataBatch.entrySet()) {
-            batchSum = batchSum.add(entry.getValue());
+        for (int i = 0; i < batchLength; i++) {
+            batchSum = batchSum.add(values.get(i));
         }
 
         BigInteger tokenShare;
-        for (Map.Entry<String,BigInteger> entry : dataBatch.entrySet()) {
-            BigInteger value = entry.getValue();
-            String address = entry.getKey();
+        for (int i = 0; i < batchLength; i++) {
+            BigInteger value = values.get(i);
+            String address = addresses.get(i).toString();
             tokenShare = remaining.multiply(value).divide(shares);
             Context.require(shares.compareTo(BigInteger.ZERO) > 0,
                     RewardsImpl.TAG + ": zero or negative divisor for " + name + ", " +
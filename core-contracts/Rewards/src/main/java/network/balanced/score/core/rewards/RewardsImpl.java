@@ -649,6 +649,20 @@ public class RewardsImpl implements Rewards {
         return batchSize.get();
     }
 
+    @External
+    public void setDataSourceColumnarBatch(String _name, boolean _enabled) {
+        only(admin);
+        Context.require(contains(DataSourceDB.names, _name), TAG + ": There is no data source with the name " + _name);
+        DataSourceImpl dataSource = DataSourceDB.get(_name);
+        if (_enabled) {
+            // Only the Loans contract implements getDataBatchColumns
+            Context.require(contains(DataSourceDB.names, "Loans") &&
+                            dataSource.getContractAddress().equals(DataSourceDB.get("Loans").getContractAddress()),
+                    TAG + ": Columnar batches are only supported by the Loans contract");
+        }
+        dataSource.setColumnarBatch(_enabled);
+    }
+
     @External
     public void setTimeOffset(BigInteger _timestamp) {
         only(admin);
@@ -321,6 +321,63 @@ class RewardsTest extends RewardsTestBase {
         verify(baln.mock, times(day)).transfer(reserve.getAddress(), reserveDist.dist_percent.multiply(emission).divide(EXA), new byte[0]);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void distribute_ColumnarBatch() {
+        // Arrange
+        Account account = sm.createAccount();
+        Account otherAccount = sm.createAccount();
+        BigInteger loansBalance = BigInteger.ONE.multiply(EXA);
+        BigInteger otherLoansBalance = BigInteger.TWO.multiply(EXA);
+        BigInteger loansTotalSupply = BigInteger.TEN.multiply(EXA);
+
+        String expectedErrorMessage = "Authorization Check: Authorization failed. Caller: " + account.getAddress() +
+                " Authorized Caller: " + admin.getAddress();
+        Executable withNotAdmin = () -> rewardsScore.invoke(account, "setDataSourceColumnarBatch", "Loans", true);
+        expectErrorMessage(withNotAdmin, expectedErrorMessage);
+        Executable withDexSource = () -> rewardsScore.invoke(admin, "setDataSourceColumnarBatch", "sICX/ICX", true);
+        expectErrorMessage(withDexSource, "Columnar batches are only supported by the Loans contract");
+        rewardsScore.invoke(admin, "setDataSourceColumnarBatch", "Loans", true);
+
+        int day = ((BigInteger) rewardsScore.call("getDay")).intValue();
+        sm.getBlock().increase(DAY);
+
+        when(loans.mock.getTotalValue(eq("Loans"), any(BigInteger.class))).thenReturn(loansTotalSupply);
+        when(loans.mock.getDataBatchColumns(eq("Loans"), any(BigInteger.class), any(Integer.class), any(Integer.class)))
+                .thenReturn(Map.of(
+                        "addresses", List.of(),
+                        "values", List.of(),
+                        "next_cursor", BigInteger.ONE.negate()));
+        when(loans.mock.getDataBatchColumns(eq("Loans"), eq(BigInteger.valueOf(day)), any(Integer.class), eq(0)))
+                .thenReturn(Map.of(
+                        "addresses", List.of(account.getAddress()),
+                        "values", List.of(loansBalance),
+                        "next_cursor", BigInteger.ONE));
+        when(loans.mock.getDataBatchColumns(eq("Loans"), eq(BigInteger.valueOf(day)), any(Integer.class), eq(1)))
+                .thenReturn(Map.of(
+                        "addresses", List.of(otherAccount.getAddress()),
+                        "values", List.of(otherLoansBalance),
+                        "next_cursor", BigInteger.ONE.negate()));
+
+        // Act
+        syncDistributions();
+
+        // Assert
+        Map<String, Object> loansData = (Map<String, Object>) rewardsScore.call("getSourceData", "Loans");
+        assertEquals(true, loansData.get("columnar_batch"));
+        verify(loans.mock, never()).getDataBatch(eq("Loans"), eq(day), any(Integer.class), any(Integer.class));
+
+        BigInteger emission = (BigInteger) rewardsScore.call("getEmission", BigInteger.valueOf(-1));
+        BigInteger loansDistribution = loansDist.dist_percent.multiply(emission).divide(EXA);
+        BigInteger userDistribution = loansDistribution.multiply(loansBalance).divide(loansTotalSupply);
+        BigInteger remaining = loansDistribution.subtract(userDistribution);
+        BigInteger otherUserDistribution = remaining.multiply(otherLoansBalance)
+                .divide(loansTotalSupply.subtract(loansBalance));
+
+        assertEquals(userDistribution, rewardsScore.call("getBalnHolding", account.getAddress()));
+        assertEquals(otherUserDistribution, rewardsScore.call("getBalnHolding", otherAccount.getAddress()));
+    }
+
     @Test
     void claimRewards() {
         // Arrange
@@ -145,12 +145,44 @@ public class RouterImpl implements Router {
         }
     }
 
+    private void swapPath(Address fromToken, Address[] path, int start, int end) {
+        JsonArray tokens = new JsonArray();
+        for (int i = start; i < end; i++) {
+            tokens.add(path[i].toString());
+        }
+
+        JsonObject params = new JsonObject();
+        params.add("path", tokens);
+        JsonObject data = new JsonObject();
+        data.add("method", "_swap_path");
+        data.add("params", params);
+        BigInteger balance = (BigInteger) Context.call(fromToken, "balanceOf", Context.getAddress());
+        Context.call(fromToken, "transfer", dex.get(), balance, data.toString().getBytes());
+    }
+
     private void route(Address from, Address startToken, Address[] _path, BigInteger _minReceive) {
         Address currentToken = startToken;
 
-        for (Address token : _path) {
-            swap(currentToken, token);
-            currentToken = token;
+        int i = 0;
+        while (i < _path.length) {
+            // Consecutive token to token hops are executed by the dex in one call, without moving the
+            // intermediate tokens back to the router.
+            int end = i;
+            if (currentToken != null) {
+                while (end < _path.length && _path[end] != null) {
+                    end++;
+                }
+            }
+
+            if (end - i > 1) {
+                swapPath(currentToken, _path, i, end);
+                currentToken = _path[end - 1];
+                i = end;
+            } else {
+                swap(currentToken, _path[i]);
+                currentToken = _path[i];
+                i++;
+            }
         }
 
         if (currentToken == null) {
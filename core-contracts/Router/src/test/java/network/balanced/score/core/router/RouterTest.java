@@ -38,6 +38,7 @@ import static network.balanced.score.lib.test.UnitTest.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 
 
 class RouterTest extends TestBase {
@@ -223,6 +224,31 @@ class RouterTest extends TestBase {
         contextMock.verify(() -> Context.transfer(newReceiver, BigInteger.TEN));
     }
 
+    @Test
+    void tokenFallback_swapPath() {
+        setup();
+
+        contextMock.when(() -> Context.call(any(Address.class), eq("balanceOf"), eq(routerScore.getAddress()))).thenReturn(BigInteger.TEN);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class), any(byte[].class))).thenReturn(null);
+
+        Account balnToken = Account.newScoreAccount(scoreCount++);
+        Account bnusdToken = Account.newScoreAccount(scoreCount++);
+        byte[] data = tokenData("_swap", Map.of("path",
+                new Object[]{bnusdToken.getAddress().toString(), sicxScore.getAddress().toString()}));
+        routerScore.invoke(balnToken, "tokenFallback", owner.getAddress(), BigInteger.TEN, data);
+
+        String swapPathData = "{\"method\":\"_swap_path\",\"params\":{\"path\":[\"" + bnusdToken.getAddress() +
+                "\",\"" + sicxScore.getAddress() + "\"]}}";
+        contextMock.verify(() -> Context.call(balnToken.getAddress(), "transfer", dexScore.getAddress(),
+                BigInteger.TEN, swapPathData.getBytes()));
+        contextMock.verify(() -> Context.call(eq(bnusdToken.getAddress()), eq("transfer"), any(Address.class),
+                any(BigInteger.class), any(byte[].class)), never());
+        contextMock.verify(() -> Context.call(sicxScore.getAddress(), "transfer", owner.getAddress(), BigInteger.TEN));
+    }
+
     @Test
     void fallback() {
         setup();
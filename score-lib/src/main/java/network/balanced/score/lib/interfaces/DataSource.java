@@ -38,6 +38,9 @@ public interface DataSource {
     @External
     Map<String, BigInteger> getDataBatch(String _name, int _snapshot_id, int _limit, int _offset);
 
+    @External(readonly = true)
+    Map<String, Object> getDataBatchColumns(String _name, BigInteger _snapshot_id, int _limit, int _cursor);
+
     @External
     BigInteger getBalnPrice();
 
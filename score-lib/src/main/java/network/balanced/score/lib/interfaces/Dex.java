@@ -161,6 +161,15 @@ public interface Dex extends AdminAddress, BnusdAddress, GovernanceAddress, Name
     @External(readonly = true)
     Map<String, Object> getPoolStats(BigInteger _id);
 
+    @External(readonly = true)
+    BigInteger quote(Address _fromToken, Address _toToken, BigInteger _amount);
+
+    @External(readonly = true)
+    BigInteger quotePath(Address _fromToken, Address[] _path, BigInteger _amount);
+
+    @External(readonly = true)
+    Map<String, Object> getBestPath(Address _fromToken, Address _toToken, BigInteger _amount);
+
     @External(readonly = true)
     BigInteger totalDexAddresses(BigInteger _id);
 
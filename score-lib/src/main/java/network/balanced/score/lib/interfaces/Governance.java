@@ -291,6 +291,21 @@ public interface Governance extends
     @External
     void setRedeemBatchSize(BigInteger _value);
 
+    @External
+    void setMaxRedeemBatches(BigInteger _value);
+
+    @External
+    void setMaxDistributeCalls(BigInteger _value);
+
+    @External
+    void setPrecomputeBudget(BigInteger _value);
+
+    @External
+    void setPackedRebalanceLog(boolean _value);
+
+    @External
+    void setDataSourceColumnarBatch(String _name, boolean _value);
+
     @External
     void addPoolOnStakedLp(BigInteger _id);
 
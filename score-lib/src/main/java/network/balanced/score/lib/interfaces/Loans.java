@@ -48,6 +48,18 @@ public interface Loans extends Name, TokenFallback, AdminAddress, DexAddress, Go
     @External(readonly = true)
     void migrateUserData(Address address);
 
+    @External
+    void migrateBatch(int _start_id, int _count);
+
+    @External(readonly = true)
+    int getMigrationCursor();
+
+    @External
+    void indexSnapshotDays(int _count);
+
+    @External(readonly = true)
+    int getSnapshotIndexCursor();
+
     @External(readonly = true)
     Map<String, Object> userMigrationDetails(Address _address);
 
@@ -75,6 +87,9 @@ public interface Loans extends Name, TokenFallback, AdminAddress, DexAddress, Go
     @External(readonly = true)
     Map<String, Object> getPositionStanding(Address _address, @Optional BigInteger snapshot);
 
+    @External(readonly = true)
+    List<Address> getAtRiskPositions(BigInteger _sicx_price, @Optional int _limit);
+
     @External(readonly = true)
     Address getPositionAddress(int _index);
 
@@ -87,12 +102,21 @@ public interface Loans extends Name, TokenFallback, AdminAddress, DexAddress, Go
     @External(readonly = true)
     BigInteger getTotalCollateral();
 
+    @External(readonly = true)
+    Map<String, BigInteger> getTotalDebts();
+
+    @External(readonly = true)
+    Map<String, BigInteger> getTotalCollateralDeposits();
+
     @External(readonly = true)
     Map<String, Object> getAccountPositions(Address _owner);
 
     @External(readonly = true)
     Map<String, Object> getPositionByIndex(int _index, BigInteger _day);
 
+    @External(readonly = true)
+    Map<String, Object> getPositionsBatch(int _start_id, int _limit);
+
     @External(readonly = true)
     Map<String, Map<String, Object>> getAvailableAssets();
 
@@ -132,6 +156,9 @@ public interface Loans extends Name, TokenFallback, AdminAddress, DexAddress, Go
     @External(readonly = true)
     Map<String, BigInteger> getDataBatch(String _name, BigInteger _snapshot_id, int _limit, @Optional int _offset);
 
+    @External(readonly = true)
+    Map<String, Object> getDataBatchColumns(String _name, BigInteger _snapshot_id, int _limit, @Optional int _cursor);
+
     @External
     boolean checkForNewDay();
 
@@ -160,6 +187,9 @@ public interface Loans extends Name, TokenFallback, AdminAddress, DexAddress, Go
     @External
     void liquidate(Address _owner);
 
+    @External
+    void liquidateBatch(Address[] _owners);
+
     @External
     void setMiningRatio(BigInteger _ratio);
 
@@ -196,6 +226,18 @@ public interface Loans extends Name, TokenFallback, AdminAddress, DexAddress, Go
     @External
     void setRedeemBatchSize(int _value);
 
+    @External
+    void setMaxRedeemBatches(int _value);
+
+    @External
+    void setMaxDistributeCalls(int _value);
+
+    @External
+    void setPrecomputeBudget(int _value);
+
+    @External
+    void setPackedRebalanceLog(boolean _value);
+
     @External(readonly= true)
     Map<String, Object> getParameters();
 }
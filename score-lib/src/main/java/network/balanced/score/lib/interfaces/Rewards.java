@@ -101,6 +101,9 @@ public interface Rewards extends Name, TokenFallback, GovernanceAddress, AdminAd
     @External
     void setBatchSize(int _batch_size);
 
+    @External
+    void setDataSourceColumnarBatch(String _name, boolean _enabled);
+
     @External(readonly = true)
     int getBatchSize();
 
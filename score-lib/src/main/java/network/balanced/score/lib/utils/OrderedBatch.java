@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package network.balanced.score.lib.utils;
+
+import java.math.BigInteger;
+
+/**
+ * Insertion ordered batch of int ids and BigInteger values, backed by parallel arrays. Iterating by index visits the
+ * entries in the order they were added, which keeps remainder allocations over the batch deterministic. Ids are not
+ * deduplicated.
+ */
+public class OrderedBatch {
+    private int[] ids;
+    private BigInteger[] values;
+    private int size;
+    private BigInteger total = BigInteger.ZERO;
+
+    /**
+     * @param capacity Expected number of entries, the batch grows beyond it if needed
+     */
+    public OrderedBatch(int capacity) {
+        if (capacity < 1) {
+            capacity = 1;
+        }
+        ids = new int[capacity];
+        values = new BigInteger[capacity];
+    }
+
+    public void add(int id, BigInteger value) {
+        if (size == ids.length) {
+            grow();
+        }
+
+        ids[size] = id;
+        values[size] = value;
+        total = total.add(value);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public BigInteger getValue(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * @return Sum of all values in the batch
+     */
+    public BigInteger getTotal() {
+        return total;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        int[] newIds = new int[capacity];
+        BigInteger[] newValues = new BigInteger[capacity];
+        System.arraycopy(ids, 0, newIds, 0, size);
+        System.arraycopy(values, 0, newValues, 0, size);
+        ids = newIds;
+        values = newValues;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package network.balanced.score.lib.utils;
+
+import network.balanced.score.lib.structs.RebalanceChange;
+import score.UserRevertException;
+
+import java.math.BigInteger;
+
+/**
+ * Binary change log of the positions touched by a rebalance.
+ * <p>
+ * Layout (version 1): {@code [version][count]} as one byte and four bytes, followed by {@code count} entries of
+ * {@code [position id][debt length][debt][collateral length][collateral]}, where the position id is four bytes,
+ * lengths are single bytes and amounts are big-endian two's complement. All integers are big-endian.
+ */
+public class RebalanceChangeLog {
+    public static final byte VERSION = 1;
+
+    private static final int HEADER_LENGTH = 5;
+    private static final int MAX_AMOUNT_LENGTH = 32;
+
+    private final byte[][] amounts;
+    private final int[] ids;
+    private int count;
+    private int length = HEADER_LENGTH;
+
+    /**
+     * @param capacity Maximum number of changes that can be added
+     */
+    public RebalanceChangeLog(int capacity) {
+        ids = new int[capacity];
+        amounts = new byte[2 * capacity][];
+    }
+
+    public void add(int id, BigInteger debt, BigInteger collateral) {
+        if (count == ids.length) {
+            throw new UserRevertException("Rebalance change log is full");
+        }
+
+        ids[count] = id;
+        amounts[2 * count] = toBytes(debt);
+        amounts[2 * count + 1] = toBytes(collateral);
+        length += 6 + amounts[2 * count].length + amounts[2 * count + 1].length;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte[] toBytes() {
+        byte[] log = new byte[length];
+        log[0] = VERSION;
+        writeInt(log, 1, count);
+
+        int offset = HEADER_LENGTH;
+        for (int i = 0; i < count; i++) {
+            writeInt(log, offset, ids[i]);
+            offset += 4;
+            for (int j = 2 * i; j < 2 * i + 2; j++) {
+                log[offset++] = (byte) amounts[j].length;
+                System.arraycopy(amounts[j], 0, log, offset, amounts[j].length);
+                offset += amounts[j].length;
+            }
+        }
+
+        return log;
+    }
+
+    public static RebalanceChange[] decode(byte[] log) {
+        if (log.length < HEADER_LENGTH || log[0] != VERSION) {
+            throw new UserRevertException("Unsupported rebalance change log");
+        }
+
+        int count = readInt(log, 1);
+        if (count < 0 || count > (log.length - HEADER_LENGTH) / 6) {
+            throw new UserRevertException("Malformed rebalance change log");
+        }
+
+        RebalanceChange[] changes = new RebalanceChange[count];
+        int offset = HEADER_LENGTH;
+        for (int i = 0; i < count; i++) {
+            RebalanceChange change = new RebalanceChange();
+            change.id = readInt(log, offset);
+            offset += 4;
+
+            int amountLength = readLength(log, offset++);
+            change.debt = readAmount(log, offset, amountLength);
+            offset += amountLength;
+
+            amountLength = readLength(log, offset++);
+            change.collateral = readAmount(log, offset, amountLength);
+            offset += amountLength;
+
+            changes[i] = change;
+        }
+
+        if (offset != log.length) {
+            throw new UserRevertException("Malformed rebalance change log");
+        }
+
+        return changes;
+    }
+
+    private static byte[] toBytes(BigInteger amount) {
+        byte[] bytes = amount.toByteArray();
+        if (bytes.length > MAX_AMOUNT_LENGTH) {
+            throw new UserRevertException("Rebalance amount out of range: " + amount);
+        }
+
+        return bytes;
+    }
+
+    private static int readLength(byte[] log, int offset) {
+        if (offset >= log.length) {
+            throw new UserRevertException("Malformed rebalance change log");
+        }
+
+        return log[offset];
+    }
+
+    private static BigInteger readAmount(byte[] log, int offset, int length) {
+        if (length <= 0 || length > MAX_AMOUNT_LENGTH || offset + length > log.length) {
+            throw new UserRevertException("Malformed rebalance change log");
+        }
+
+        byte[] bytes = new byte[length];
+        System.arraycopy(log, offset, bytes, 0, length);
+        return new BigInteger(bytes);
+    }
+
+    private static void writeInt(byte[] log, int offset, int value) {
+        log[offset] = (byte) (value >>> 24);
+        log[offset + 1] = (byte) (value >>> 16);
+        log[offset + 2] = (byte) (value >>> 8);
+        log[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] log, int offset) {
+        if (offset + 4 > log.length) {
+            throw new UserRevertException("Malformed rebalance change log");
+        }
+
+        return ((log[offset] & 0xff) << 24) | ((log[offset + 1] & 0xff) << 16) | ((log[offset + 2] & 0xff) << 8) |
+                (log[offset + 3] & 0xff);
+    }
+}
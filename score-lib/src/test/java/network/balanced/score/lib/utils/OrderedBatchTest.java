@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package network.balanced.score.lib.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OrderedBatchTest {
+
+    @Test
+    public void testInsertionOrder() {
+        OrderedBatch batch = new OrderedBatch(2);
+        int[] ids = {7, 3, 11, 1, 5};
+        for (int id : ids) {
+            batch.add(id, BigInteger.valueOf(id * 10L));
+        }
+
+        assertEquals(ids.length, batch.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], batch.getId(i));
+            assertEquals(BigInteger.valueOf(ids[i] * 10L), batch.getValue(i));
+        }
+        assertEquals(BigInteger.valueOf(270), batch.getTotal());
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        OrderedBatch batch = new OrderedBatch(0);
+        assertEquals(0, batch.size());
+        assertEquals(BigInteger.ZERO, batch.getTotal());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> batch.getId(0));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package network.balanced.score.lib.utils;
+
+import network.balanced.score.lib.structs.RebalanceChange;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import score.UserRevertException;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RebalanceChangeLogTest {
+
+    @Test
+    public void testEncodeDecode() {
+        BigInteger debt = new BigInteger("1000000000000000000000");
+        BigInteger collateral = new BigInteger("-2500000000000000000000");
+
+        RebalanceChangeLog log = new RebalanceChangeLog(3);
+        log.add(1, debt, collateral);
+        log.add(Integer.MAX_VALUE, debt.negate(), BigInteger.ZERO);
+        log.add(42, BigInteger.ONE, BigInteger.valueOf(-1));
+        assertEquals(3, log.size());
+
+        RebalanceChange[] changes = RebalanceChangeLog.decode(log.toBytes());
+        assertEquals(3, changes.length);
+
+        assertEquals(1, changes[0].id);
+        assertEquals(debt, changes[0].debt);
+        assertEquals(collateral, changes[0].collateral);
+
+        assertEquals(Integer.MAX_VALUE, changes[1].id);
+        assertEquals(debt.negate(), changes[1].debt);
+        assertEquals(BigInteger.ZERO, changes[1].collateral);
+
+        assertEquals(42, changes[2].id);
+        assertEquals(BigInteger.ONE, changes[2].debt);
+        assertEquals(BigInteger.valueOf(-1), changes[2].collateral);
+    }
+
+    @Test
+    public void testEmptyLog() {
+        byte[] bytes = new RebalanceChangeLog(0).toBytes();
+        assertEquals(5, bytes.length);
+        assertEquals(0, RebalanceChangeLog.decode(bytes).length);
+    }
+
+    @Test
+    public void testAddOverCapacity() {
+        RebalanceChangeLog log = new RebalanceChangeLog(1);
+        log.add(1, BigInteger.ONE, BigInteger.ONE);
+
+        UserRevertException e = Assertions.assertThrows(UserRevertException.class,
+                () -> log.add(2, BigInteger.ONE, BigInteger.ONE));
+        assertEquals("Rebalance change log is full", e.getMessage());
+    }
+
+    @Test
+    public void testDecodeMalformed() {
+        RebalanceChangeLog log = new RebalanceChangeLog(1);
+        log.add(1, BigInteger.TEN, BigInteger.TEN);
+        byte[] bytes = log.toBytes();
+
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        UserRevertException e = Assertions.assertThrows(UserRevertException.class,
+                () -> RebalanceChangeLog.decode(truncated));
+        assertEquals("Malformed rebalance change log", e.getMessage());
+
+        byte[] missingLength = new byte[bytes.length - 2];
+        System.arraycopy(bytes, 0, missingLength, 0, missingLength.length);
+        e = Assertions.assertThrows(UserRevertException.class, () -> RebalanceChangeLog.decode(missingLength));
+        assertEquals("Malformed rebalance change log", e.getMessage());
+
+        byte[] missingPayload = bytes.clone();
+        // the debt length byte follows the five byte header and the four byte position id
+        missingPayload[9] = 4;
+        e = Assertions.assertThrows(UserRevertException.class, () -> RebalanceChangeLog.decode(missingPayload));
+        assertEquals("Malformed rebalance change log", e.getMessage());
+
+        bytes[0] = 2;
+        e = Assertions.assertThrows(UserRevertException.class, () -> RebalanceChangeLog.decode(bytes));
+        assertEquals("Unsupported rebalance change log", e.getMessage());
+    }
+}
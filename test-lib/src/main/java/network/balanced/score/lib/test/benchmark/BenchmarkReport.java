@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.lib.test.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects {@link CallSample}s per scenario and writes them as a json report to
+ * {@code <benchmark.reportDir>/<name>.json}. If the {@code benchmark.baseline} system property points to a
+ * directory holding a previous report with the same name, the step difference of every sample is printed.
+ */
+public class BenchmarkReport {
+    private static final String REPORT_DIR = "benchmark.reportDir";
+    private static final String BASELINE_DIR = "benchmark.baseline";
+
+    private final String name;
+    private final StepCostSchedule schedule;
+    private final JSONArray results = new JSONArray();
+
+    public BenchmarkReport(String name) {
+        this(name, StepCostSchedule.MAINNET);
+    }
+
+    public BenchmarkReport(String name, StepCostSchedule schedule) {
+        this.name = name;
+        this.schedule = schedule;
+    }
+
+    public synchronized void add(Map<String, Object> scenario, CallSample sample) {
+        JSONObject result = sample.toJson(schedule);
+        result.put("scenario", new JSONObject(scenario));
+        results.put(result);
+    }
+
+    public synchronized void write() throws IOException {
+        JSONObject report = new JSONObject();
+        report.put("benchmark", name);
+        report.put("schedule", schedule.toJson());
+        report.put("results", results);
+
+        Path directory = Paths.get(System.getProperty(REPORT_DIR, "build/reports/benchmark"));
+        Files.createDirectories(directory);
+        Files.write(directory.resolve(name + ".json"), report.toString(2).getBytes(StandardCharsets.UTF_8));
+
+        String baseline = System.getProperty(BASELINE_DIR);
+        if (baseline != null) {
+            compare(Paths.get(baseline).resolve(name + ".json"));
+        }
+    }
+
+    private void compare(Path baselineReport) throws IOException {
+        if (!Files.exists(baselineReport)) {
+            System.out.println(name + ": no baseline found at " + baselineReport);
+            return;
+        }
+
+        String content = new String(Files.readAllBytes(baselineReport), StandardCharsets.UTF_8);
+        JSONArray baselineResults = new JSONObject(content).getJSONArray("results");
+        Map<String, Long> baselineSteps = new HashMap<>();
+        for (int i = 0; i < baselineResults.length(); i++) {
+            JSONObject result = baselineResults.getJSONObject(i);
+            baselineSteps.put(key(result), result.getLong("steps"));
+        }
+
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            Long before = baselineSteps.get(key(result));
+            long after = result.getLong("steps");
+            if (before == null) {
+                System.out.println(name + " " + key(result) + ": " + after + " steps (new)");
+            } else {
+                long delta = after - before;
+                System.out.println(name + " " + key(result) + ": " + before + " -> " + after + " steps (" +
+                        (delta > 0 ? "+" : "") + delta + ")");
+            }
+        }
+    }
+
+    private static String key(JSONObject result) {
+        JSONObject scenario = result.getJSONObject("scenario");
+        StringBuilder key = new StringBuilder(result.getString("method"));
+        scenario.keySet().stream().sorted().forEach(parameter ->
+                key.append(" ").append(parameter).append("=").append(scenario.get(parameter)));
+        return key.toString();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.lib.test.benchmark;
+
+import org.json.JSONObject;
+
+/**
+ * Counters collected by a {@link ContractMeter} for a single measured transaction, including every contract
+ * reached through inter-contract calls.
+ */
+public class CallSample {
+    private final String method;
+    private long externalCalls;
+    private long dbReads;
+    private long bytesRead;
+    private long dbWrites;
+    private long bytesWritten;
+    private long events;
+    private long eventBytes;
+
+    CallSample(String method) {
+        this.method = method;
+    }
+
+    void recordCall() {
+        externalCalls++;
+    }
+
+    void recordRead(long bytes) {
+        dbReads++;
+        bytesRead += bytes;
+    }
+
+    void recordWrite(long bytes) {
+        dbWrites++;
+        bytesWritten += bytes;
+    }
+
+    void recordEvent(long bytes) {
+        events++;
+        eventBytes += bytes;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getExternalCalls() {
+        return externalCalls;
+    }
+
+    public long getDbReads() {
+        return dbReads;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getDbWrites() {
+        return dbWrites;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getEventBytes() {
+        return eventBytes;
+    }
+
+    public JSONObject toJson(StepCostSchedule schedule) {
+        JSONObject json = new JSONObject();
+        json.put("method", method);
+        json.put("steps", schedule.estimate(this));
+        json.put("externalCalls", externalCalls);
+        json.put("dbReads", dbReads);
+        json.put("bytesRead", bytesRead);
+        json.put("dbWrites", dbWrites);
+        json.put("bytesWritten", bytesWritten);
+        json.put("events", events);
+        json.put("eventBytes", eventBytes);
+        return json;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.lib.test.benchmark;
+
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import score.Address;
+import score.ArrayDB;
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+import score.VarDB;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Counts inter-contract calls, storage reads and writes and event logs of the contracts under test by statically
+ * mocking {@link Context} and wrapping every database it hands out.
+ * <p>
+ * Databases are only metered if they are created while the meter is open, so a meter has to be opened before the
+ * contracts are deployed and, for contracts keeping their databases in static fields, before their classes are
+ * loaded. Only one meter (or other static mock of {@link Context}) can be open per thread.
+ */
+public class ContractMeter implements AutoCloseable {
+    private final MockedStatic<Context> contextMock;
+    private CallSample current;
+
+    public ContractMeter() {
+        contextMock = Mockito.mockStatic(Context.class, this::intercept);
+    }
+
+    public MockedStatic<Context> getContextMock() {
+        return contextMock;
+    }
+
+    public CallSample measure(String method, Runnable transaction) {
+        CallSample sample = new CallSample(method);
+        current = sample;
+        try {
+            transaction.run();
+        } finally {
+            current = null;
+        }
+        return sample;
+    }
+
+    @Override
+    public void close() {
+        contextMock.close();
+    }
+
+    private Object intercept(InvocationOnMock invocation) throws Throwable {
+        String method = invocation.getMethod().getName();
+        if (current != null) {
+            if (method.equals("call")) {
+                current.recordCall();
+            } else if (method.equals("logEvent")) {
+                current.recordEvent(sizeOf((Object[]) invocation.getArgument(0)) +
+                        sizeOf((Object[]) invocation.getArgument(1)));
+            }
+        }
+
+        Object result = invocation.callRealMethod();
+        if (method.startsWith("new") && method.endsWith("DB")) {
+            return wrap(result);
+        }
+
+        return result;
+    }
+
+    private Object wrap(Object db) {
+        Class<?> type;
+        if (db instanceof VarDB) {
+            type = VarDB.class;
+        } else if (db instanceof DictDB) {
+            type = DictDB.class;
+        } else if (db instanceof ArrayDB) {
+            type = ArrayDB.class;
+        } else if (db instanceof BranchDB) {
+            type = BranchDB.class;
+        } else {
+            return db;
+        }
+
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(db, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (type == BranchDB.class) {
+                return wrap(result);
+            }
+
+            if (current != null) {
+                record(method, args, result);
+            }
+            return result;
+        });
+    }
+
+    private void record(Method method, Object[] args, Object result) {
+        switch (method.getName()) {
+            case "get":
+            case "getOrDefault":
+            case "size":
+                current.recordRead(sizeOf(result));
+                break;
+            case "set":
+                current.recordWrite(sizeOf(args[args.length - 1]));
+                break;
+            case "add":
+                // value and length
+                current.recordRead(0);
+                current.recordWrite(sizeOf(args[0]));
+                current.recordWrite(4);
+                break;
+            case "pop":
+            case "removeLast":
+                current.recordRead(0);
+                current.recordRead(sizeOf(result));
+                current.recordWrite(0);
+                current.recordWrite(4);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static long sizeOf(Object[] values) {
+        long size = 0;
+        for (Object value : values) {
+            size += sizeOf(value);
+        }
+        return size;
+    }
+
+    private static long sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof BigInteger) {
+            return ((BigInteger) value).toByteArray().length;
+        } else if (value instanceof Number) {
+            return BigInteger.valueOf(((Number) value).longValue()).toByteArray().length;
+        } else if (value instanceof Boolean) {
+            return 1;
+        } else if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8).length;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof Address) {
+            return Address.LENGTH;
+        }
+
+        return value.toString().length();
+    }
+}
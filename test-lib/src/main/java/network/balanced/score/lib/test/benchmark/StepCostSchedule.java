@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.lib.test.benchmark;
+
+import org.json.JSONObject;
+
+/**
+ * Step prices used to turn the raw counters of a {@link CallSample} into an estimated step cost. The unittest
+ * framework does not meter steps itself, so the defaults mirror the step schedule of the ICON mainnet and only
+ * storage, inter-contract calls and event logs are priced.
+ */
+public class StepCostSchedule {
+    public static final StepCostSchedule MAINNET = new StepCostSchedule(100_000, 25_000, 3_000, 25, 10_000, 320,
+            5_000, 100);
+
+    public final long transaction;
+    public final long contractCall;
+    public final long getBase;
+    public final long get;
+    public final long setBase;
+    public final long set;
+    public final long logBase;
+    public final long log;
+
+    public StepCostSchedule(long transaction, long contractCall, long getBase, long get, long setBase, long set,
+                            long logBase, long log) {
+        this.transaction = transaction;
+        this.contractCall = contractCall;
+        this.getBase = getBase;
+        this.get = get;
+        this.setBase = setBase;
+        this.set = set;
+        this.logBase = logBase;
+        this.log = log;
+    }
+
+    public long estimate(CallSample sample) {
+        return transaction +
+                contractCall * sample.getExternalCalls() +
+                getBase * sample.getDbReads() + get * sample.getBytesRead() +
+                setBase * sample.getDbWrites() + set * sample.getBytesWritten() +
+                logBase * sample.getEvents() + log * sample.getEventBytes();
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("default", transaction);
+        json.put("contractCall", contractCall);
+        json.put("getBase", getBase);
+        json.put("get", get);
+        json.put("setBase", setBase);
+        json.put("set", set);
+        json.put("logBase", logBase);
+        json.put("log", log);
+        return json;
+    }
+}